@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.api;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the logs of a set of pods, keeping the most recent lines of each.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public interface LogCollector extends Closeable {
+    /**
+     * Get followed pods.
+     *
+     * @return pods followed so far, including terminated ones
+     */
+    Set<String> getPods();
+
+    /**
+     * Get buffered lines of a pod.
+     *
+     * @param podName the pod name
+     * @return the pod's most recent lines
+     */
+    List<String> getLines(String podName);
+
+    /**
+     * Grep buffered lines of all pods.
+     *
+     * @param regexp the regexp to find in a line
+     * @return matching lines
+     */
+    List<String> grep(String regexp);
+
+    /**
+     * Wait for a line, either already buffered or yet to come.
+     *
+     * @param regexp  the regexp to find in a line
+     * @param timeout the timeout
+     * @param unit    the timeout unit
+     * @return the first matching line
+     * @throws Exception if no such line shows up in time
+     */
+    String await(String regexp, long timeout, TimeUnit unit) throws Exception;
+}
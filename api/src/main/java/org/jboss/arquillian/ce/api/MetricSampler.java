@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Samples metrics at a fixed rate on every ready pod, keeping the most recent samples per pod and metric.
+ * <p>
+ * Non-numeric values are sampled as NaN.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public interface MetricSampler extends Closeable {
+    /**
+     * Get sampled pods.
+     *
+     * @return pods sampled so far
+     */
+    Set<String> getPods();
+
+    /**
+     * Get sample times of a pod.
+     *
+     * @param podName the pod name
+     * @return sample times, in millis, oldest first
+     */
+    long[] getTimes(String podName);
+
+    /**
+     * Get samples of a metric on a pod.
+     *
+     * @param podName the pod name
+     * @param metric  the metric name
+     * @return samples, oldest first, matching the sample times
+     */
+    double[] getValues(String podName, String metric);
+
+    /**
+     * Get the peak of a metric across all pods.
+     *
+     * @param metric the metric name
+     * @return the max sample, NaN if none
+     */
+    double getMax(String metric);
+
+    /**
+     * Get the trend of a metric on a pod, as a least squares slope.
+     *
+     * @param podName the pod name
+     * @param metric  the metric name
+     * @return change per second, NaN if less than two samples
+     */
+    double getSlope(String podName, String metric);
+
+    /**
+     * Write samples as CSV, one row per pod and sample time.
+     *
+     * @param writer the writer
+     * @throws IOException for any I/O error
+     */
+    void writeCsv(Writer writer) throws IOException;
+
+    /**
+     * Write samples as JSON, per pod the sample times and the samples of each metric.
+     *
+     * @param writer the writer
+     * @throws IOException for any I/O error
+     */
+    void writeJson(Writer writer) throws IOException;
+}
@@ -100,6 +100,16 @@ public interface OpenShiftHandle {
      */
     String getLog(String prefix, Map<String, String> labels) throws Exception;
 
+    /**
+     * Follow the logs of all pods matching the labels, including pods started later.
+     *
+     * @param labels    the labels for selecting the pods
+     * @param tailLines the number of existing lines to start with, per pod; -1 for all
+     * @return the log collector, close it once done
+     * @throws Exception for any error
+     */
+    LogCollector collectLogs(Map<String, String> labels, int tailLines) throws Exception;
+
     /**
      * Get ready pods.
      *
@@ -150,4 +160,36 @@ public interface OpenShiftHandle {
      * Input is on purpose plain Object.
      */
     <T> T jolokia(Class<T> expectedReturnType, String podName, Object input) throws Exception;
+
+    /**
+     * Bulk Jolokia request, all in a single round trip.
+     *
+     * @param podName the pod name
+     * @param input   the requests, J4pRequest instances
+     * @return the values, in request order
+     * @throws Exception for any error, including a failed request
+     */
+    List<Object> jolokia(String podName, List<?> input) throws Exception;
+
+    /**
+     * Bulk Jolokia request, against all ready pods in parallel.
+     *
+     * @param prefix the RC prefix
+     * @param input  the requests, J4pRequest instances
+     * @return the values, in request order, per pod
+     * @throws Exception for any error, including a failed request
+     */
+    Map<String, List<Object>> jolokiaAll(String prefix, List<?> input) throws Exception;
+
+    /**
+     * Sample Jolokia values at a fixed rate on all ready pods, until the sampler is closed.
+     * A failed request is sampled as NaN, a pod which cannot be queried misses the sample.
+     *
+     * @param prefix the RC prefix
+     * @param period the sampling period, in millis
+     * @param input  metric name to J4pRequest, e.g. a HeapMemoryUsage read with path "used"
+     * @return the sampler, close it once done
+     * @throws Exception for any error
+     */
+    MetricSampler sample(String prefix, long period, Map<String, ?> input) throws Exception;
 }
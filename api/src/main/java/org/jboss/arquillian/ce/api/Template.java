@@ -44,4 +44,15 @@ public @interface Template {
      * Do we invoke K8s process template?
      */
     boolean process() default true;
+
+    /**
+     * Name to refer to this template in dependsOn, default is its url.
+     */
+    String name() default "";
+
+    /**
+     * Templates (by name) which must be ready before this one is instantiated,
+     * with @TemplateResources(concurrentInstantiation = true).
+     */
+    String[] dependsOn() default {};
 }
@@ -46,5 +46,14 @@ public @interface TemplateResources {
      **/
     boolean syncInstantiation() default true;
 
+    /**
+     * If true, all templates are instantiated at once, and their deployments awaited in parallel.
+     * A template with dependsOn is only instantiated once the templates it depends on are ready.
+     * Overrides syncInstantiation.
+     *
+     * @return concurrent instantiation
+     **/
+    boolean concurrentInstantiation() default false;
+
     Template[] templates() default {};
 }
@@ -32,8 +32,19 @@ import static org.jboss.arquillian.ce.utils.TemplateUtils.readTemplateUrl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.arquillian.cube.openshift.impl.client.OpenShiftClient;
@@ -43,6 +54,9 @@ import org.jboss.arquillian.ce.api.model.DeploymentConfig;
 import org.jboss.arquillian.ce.api.model.OpenShiftResource;
 import org.jboss.arquillian.ce.cube.dns.CENameService;
 import org.jboss.arquillian.ce.resources.OpenShiftResourceFactory;
+import org.jboss.arquillian.ce.utils.Checker;
+import org.jboss.arquillian.ce.utils.Containers;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 import org.jboss.arquillian.ce.utils.Operator;
 import org.jboss.arquillian.ce.utils.ParamValue;
 import org.jboss.arquillian.ce.utils.StringResolver;
@@ -71,6 +85,13 @@ public class CEEnvironmentProcessor {
 
     private final Logger log = Logger.getLogger(CEEnvironmentProcessor.class.getName());
     private List<Template> templates = Collections.emptyList();
+    private List<Future<?>> instantiations = Collections.emptyList();
+    private CompletionService<Void> completions;
+    private CountDownLatch instantiationsDone = new CountDownLatch(0);
+
+    private static final long CHECK_PERIOD = 4000L;
+    // unbounded, as template tasks block on the templates they depend on
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("ce-arq-templates"));
 
     public interface TemplateDetails {
         List<List<? extends OpenShiftResource>> getResources();
@@ -107,9 +128,17 @@ public class CEEnvironmentProcessor {
     	templates = OpenShiftResourceFactory.getTemplates(testClass.getJavaClass());
     	boolean sync_instantiation = OpenShiftResourceFactory.syncInstantiation(testClass.getJavaClass());
 
+        List<Template> sequential = templates;
+        if (OpenShiftResourceFactory.concurrentInstantiation(testClass.getJavaClass())) {
+            instantiations = instantiateConcurrently(templates, testClass, client, configuration);
+            sequential = Collections.emptyList();
+        } else {
+            instantiations = Collections.emptyList();
+        }
+
     	/* Instantiate templates */
-      	for (Template template : templates) {
-    		resources = processTemplate(template, testClass, client, configuration);
+      	for (Template template : sequential) {
+    		resources = processTemplate(template, testClass, client, configuration, true);
     		if (sync_instantiation) {
     			/* synchronous template instantiation */
     			RESOURCES.add(resources);
@@ -131,12 +160,118 @@ public class CEEnvironmentProcessor {
         });
     }
 
+    /**
+     * Instantiate every template as soon as the templates it depends on are ready.
+     *
+     * @return per template, a future which completes once the template's deployments are ready
+     */
+    private List<Future<?>> instantiateConcurrently(List<Template> templates, final TestClass testClass, final OpenShiftAdapter client, final CECubeConfiguration configuration) {
+        final Map<String, Future<?>> byName = new HashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        List<Template> sorted = sortByDependencies(templates);
+        final CountDownLatch done = new CountDownLatch(sorted.size());
+        completions = new ExecutorCompletionService<>(executor);
+        instantiationsDone = done;
+        for (final Template template : sorted) {
+            final List<Future<?>> dependencies = new ArrayList<>();
+            for (String dependency : template.dependsOn()) {
+                dependencies.add(byName.get(dependency));
+            }
+            Future<?> future = completions.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    try {
+                        for (Future<?> dependency : dependencies) {
+                            dependency.get();
+                        }
+                        // no cleanup here, the environment is deleted once all instantiations stopped
+                        List<? extends OpenShiftResource> resources = processTemplate(template, testClass, client, configuration, false);
+                        if (resources != null) {
+                            delayAll(client, resources, configuration);
+                        }
+                        return null;
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+            byName.put(getName(template), future);
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    /**
+     * Wait for all concurrent instantiations, in completion order; on the first failure
+     * cancel the others, wait for them to stop, and delete the environment.
+     */
+    private void awaitInstantiations(TestClass testClass, OpenShiftAdapter client, CECubeConfiguration configuration) throws Throwable {
+        try {
+            for (int i = 0; i < instantiations.size(); i++) {
+                try {
+                    completions.take().get();
+                } catch (ExecutionException e) {
+                    throw e.getCause();
+                }
+            }
+        } catch (Throwable t) {
+            for (Future<?> instantiation : instantiations) {
+                instantiation.cancel(true);
+            }
+            instantiationsDone.await();
+            try {
+                deleteEnvironment(testClass, client, configuration);
+            } catch (Exception e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+    }
+
+    private static String getName(Template template) {
+        return template.name().isEmpty() ? template.url() : template.name();
+    }
+
+    /**
+     * Order templates so each one comes after the templates it depends on.
+     */
+    private static List<Template> sortByDependencies(List<Template> templates) {
+        Map<String, Template> byName = new LinkedHashMap<>();
+        for (Template template : templates) {
+            byName.put(getName(template), template);
+        }
+        List<Template> sorted = new ArrayList<>();
+        Set<String> visiting = new HashSet<>();
+        for (Template template : templates) {
+            visit(template, byName, visiting, sorted);
+        }
+        return sorted;
+    }
+
+    private static void visit(Template template, Map<String, Template> byName, Set<String> visiting, List<Template> sorted) {
+        if (sorted.contains(template)) {
+            return;
+        }
+        String name = getName(template);
+        if (visiting.add(name) == false) {
+            throw new IllegalArgumentException("Cyclic template dependency: " + name);
+        }
+        for (String dependency : template.dependsOn()) {
+            Template other = byName.get(dependency);
+            if (other == null) {
+                throw new IllegalArgumentException(String.format("Template %s depends on unknown template %s", name, dependency));
+            }
+            visit(other, byName, visiting, sorted);
+        }
+        visiting.remove(name);
+        sorted.add(template);
+    }
+
     /**
      * Wait for the template resources to come up after the test container has
      * been started. This allows the test container and the template resources
      * to come up in parallel.
      */
-    public void waitForDeployments(@Observes(precedence = -100) AfterStart event, OpenShiftAdapter client, TemplateDetails details, TestClass testClass) throws Exception {
+    public void waitForDeployments(@Observes(precedence = -100) AfterStart event, OpenShiftAdapter client, TemplateDetails details, TestClass testClass, CECubeConfiguration configuration) throws Exception {
         if (testClass == null) {
             // nothing to do, since we're not in ClassScoped context
             return;
@@ -147,6 +282,7 @@ public class CEEnvironmentProcessor {
         }
         log.info(String.format("Waiting for environment for %s", testClass.getName()));
         try {
+            awaitInstantiations(testClass, client, configuration);
        	    for (List<? extends OpenShiftResource> resources : details.getResources()) {
                 delay(client, resources);
             }
@@ -189,7 +325,7 @@ public class CEEnvironmentProcessor {
         CENameService.setRoutes(client.getClientExt().routes().list(), configuration.getRouterHost());
     }
 
-    private List<? extends OpenShiftResource> processTemplate(Template  template, TestClass tc, OpenShiftAdapter client, CECubeConfiguration configuration) throws DeploymentException {
+    private List<? extends OpenShiftResource> processTemplate(Template  template, TestClass tc, OpenShiftAdapter client, CECubeConfiguration configuration, boolean cleanupOnFailure) throws DeploymentException {
         final StringResolver resolver = Strings.createStringResolver(configuration.getProperties());
         final String templateURL = readTemplateUrl(template, configuration, false, resolver);
 
@@ -222,7 +358,9 @@ public class CEEnvironmentProcessor {
                     // class name + templateUrl is template key
                 	resources = client.processTemplateAndCreateResources(tc.getName() + templateURL, templateURL, values, labels);
                 } catch (Exception e){
-                    deleteEnvironment(tc, client, configuration);
+                    if (cleanupOnFailure) {
+                        deleteEnvironment(tc, client, configuration);
+                    }
                 	throw e;
                 }
             } else {
@@ -245,6 +383,32 @@ public class CEEnvironmentProcessor {
         }
     }
 
+    /**
+     * Wait for all deployment configs at once, checked together on the shared checker thread.
+     * With pod watches the ready pods come from the pod cache, so a check doesn't hit the API.
+     */
+    private void delayAll(final OpenShiftAdapter client, List<? extends OpenShiftResource> resources, CECubeConfiguration configuration) throws Exception {
+        List<Checker> checkers = new ArrayList<>();
+        for (OpenShiftResource resource : resources) {
+            if (resource instanceof DeploymentConfig) {
+                final DeploymentConfig dc = (DeploymentConfig) resource;
+                checkers.add(new Checker() {
+                    public boolean check() {
+                        return client.getProxy().getReadyPods(dc.getSelector()).size() == dc.getReplicas();
+                    }
+
+                    @Override
+                    public String toString() {
+                        return String.format("Number of pod(s) matching labels: %s is %s %s", dc.getSelector(), Operator.EQUAL, dc.getReplicas());
+                    }
+                });
+            }
+        }
+        if (checkers.isEmpty() == false) {
+            Containers.delayAll(configuration.getStartupTimeout(), CHECK_PERIOD, checkers);
+        }
+    }
+
     private void additionalCleanup(OpenShiftAdapter client, Map<String, String> labels) throws Exception {
         client.cleanRemnants(labels);
     }
@@ -32,6 +32,7 @@ import org.jboss.arquillian.ce.utils.Strings;
 public class CEConfiguration extends WildFlySPIConfiguration {
     private String eapImageName = Strings.getSystemPropertyOrEnvVar("container.image.name", "ce-registry.usersys.redhat.com/jboss-eap-6/eap64-openshift:1.2");
     private String label = Strings.getSystemPropertyOrEnvVar("container.image.label", "eap6bare");
+    private boolean portForward = Boolean.parseBoolean(Strings.getSystemPropertyOrEnvVar("container.port.forward"));
 
     public String getEapImageName() {
         return eapImageName;
@@ -48,4 +49,12 @@ public class CEConfiguration extends WildFlySPIConfiguration {
     public void setLabel(String label) {
         this.label = label;
     }
+
+    public boolean isPortForward() {
+        return portForward;
+    }
+
+    public void setPortForward(boolean portForward) {
+        this.portForward = portForward;
+    }
 }
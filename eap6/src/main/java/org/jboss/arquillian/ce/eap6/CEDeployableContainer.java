@@ -28,6 +28,8 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.util.Map;
 
+import org.jboss.arquillian.ce.portfwd.PortForward;
+import org.jboss.arquillian.ce.portfwd.PortForwardContext;
 import org.jboss.arquillian.ce.spi.WildFlySPIContainer;
 import org.jboss.arquillian.ce.utils.AbstractCEContainer;
 import org.jboss.arquillian.ce.utils.Archives;
@@ -63,7 +65,7 @@ public class CEDeployableContainer extends AbstractCEContainer<CEConfiguration>
     private InstanceProducer<ArchiveDeployer> archiveDeployer;
 
     private Map<String, String> labels;
-//    private PortForward.Handle portFwd;
+    private PortForward.Handle portFwd;
 
     public Class<CEConfiguration> getConfigurationClass() {
         return CEConfiguration.class;
@@ -93,15 +95,15 @@ public class CEDeployableContainer extends AbstractCEContainer<CEConfiguration>
             labels = deployEapPods(replicas);
             client.delay(labels, replicas, Operator.GREATER_THAN_OR_EQUAL);
 
-/*
-            PortForwardContext context = client.createPortForwardContext(labels, configuration.getMgmtPort());
-            PortForward pf = proxy.createPortForward();
-            portFwd = pf.run(context);
-
-            String address = portFwd.getInetAddress().getHostAddress(); // we abuse k8s port forwarding
-*/
-            String address = InetAddress.getLocalHost().getHostAddress();
+            String address;
             int port = configuration.getMgmtPort();
+            if (configuration.isPortForward()) {
+                PortForwardContext context = client.createPortForwardContext(labels, port);
+                portFwd = proxy.createPortForward().open(context);
+                address = portFwd.getInetAddress().getHostAddress(); // we abuse k8s port forwarding
+            } else {
+                address = InetAddress.getLocalHost().getHostAddress();
+            }
 
             ModelControllerClient modelControllerClient = ModelControllerClient.Factory.create(address, port);
 
@@ -138,14 +140,16 @@ public class CEDeployableContainer extends AbstractCEContainer<CEConfiguration>
     @Override
     public void stop() throws LifecycleException {
         try {
-//            try {
+            try {
                 getManagementClient().close();
-//            } finally {
-//                try {
-//                    portFwd.close();
-//                } catch (IOException ignored) {
-//                }
-//            }
+            } finally {
+                if (portFwd != null) {
+                    try {
+                        portFwd.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
         } finally {
             super.stop();
         }
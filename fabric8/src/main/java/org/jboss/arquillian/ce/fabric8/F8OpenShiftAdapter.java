@@ -30,27 +30,35 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.model.*;
+import io.fabric8.kubernetes.client.Adapters;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.ClientNonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.ClientPodResource;
 import io.fabric8.kubernetes.client.dsl.ClientResource;
 import io.fabric8.kubernetes.client.dsl.Deletable;
 import io.fabric8.kubernetes.client.dsl.ExecListener;
 import io.fabric8.openshift.api.model.Build;
-import io.fabric8.openshift.api.model.BuildList;
+import io.fabric8.openshift.api.model.BuildConfig;
 import io.fabric8.openshift.api.model.DeploymentConfig;
 import io.fabric8.openshift.api.model.DeploymentConfigList;
 import io.fabric8.openshift.api.model.DeploymentConfigStatus;
@@ -70,10 +78,19 @@ import io.fabric8.openshift.client.OpenShiftConfigBuilder;
 import io.fabric8.openshift.client.ParameterValue;
 import io.fabric8.openshift.client.dsl.ClientDeployableScalableResource;
 import io.fabric8.openshift.client.dsl.ClientTemplateResource;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
 
 import org.apache.commons.io.IOUtils;
 import org.jboss.arquillian.ce.adapter.AbstractOpenShiftAdapter;
+import org.jboss.arquillian.ce.adapter.PodLogCollector;
+import org.jboss.arquillian.ce.api.LogCollector;
 import org.jboss.arquillian.ce.api.MountSecret;
 import org.jboss.arquillian.ce.api.model.OpenShiftResource;
 import org.jboss.arquillian.ce.fabric8.model.F8DeploymentConfig;
@@ -83,6 +100,7 @@ import org.jboss.arquillian.ce.resources.OpenShiftResourceHandle;
 import org.jboss.arquillian.ce.utils.Checker;
 import org.jboss.arquillian.ce.utils.Configuration;
 import org.jboss.arquillian.ce.utils.Containers;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 import org.jboss.arquillian.ce.utils.HookType;
 import org.jboss.arquillian.ce.utils.Operator;
 import org.jboss.arquillian.ce.utils.ParamValue;
@@ -90,10 +108,12 @@ import org.jboss.arquillian.ce.utils.Port;
 import org.jboss.arquillian.ce.utils.RCContext;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
 import org.jboss.dmr.ModelNode;
+import org.jboss.shrinkwrap.api.Archive;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
@@ -175,14 +195,14 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     @Override
-    public PortForwardContext createPortForwardContext(Map<String, String> labels, int port) {
+    public PortForwardContext createPortForwardContext(Map<String, String> labels, int... ports) {
         List<Pod> pods = client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).list().getItems();
         if (pods.isEmpty()) {
             throw new IllegalStateException("No such pods: " + labels);
         }
         Pod pod = pods.get(0);
         String nodeName = pod.getStatus().getHostIP();
-        return new PortForwardContext(configuration.getKubernetesMaster(), nodeName, configuration.getNamespace(), pod.getMetadata().getName(), port);
+        return new PortForwardContext(configuration.getKubernetesMaster(), nodeName, configuration.getNamespace(), pod.getMetadata().getName(), ports);
     }
 
     public RegistryLookupEntry lookup() {
@@ -215,6 +235,112 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         return client.projects().withName(configuration.getNamespace()).delete();
     }
 
+    public void warmProject(final String name) throws Exception {
+        if (client.projects().withName(name).get() == null) {
+            try {
+                client.projectrequests().createNew().withNewMetadata().withName(name).endMetadata().done();
+            } catch (KubernetesClientException e) {
+                if (e.getCode() != 409) {
+                    throw e;
+                }
+                // created meanwhile, e.g. by another fork's pool top-up
+            }
+        }
+        Containers.delay(configuration.getStartupTimeout(), 1000L, new Checker() {
+            public boolean check() {
+                for (String sa : WARM_SERVICE_ACCOUNTS) {
+                    ServiceAccount account = client.serviceAccounts().inNamespace(name).withName(sa).get();
+                    if (account == null || account.getSecrets().isEmpty()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return String.format("WarmProject[%s]", name);
+            }
+        });
+    }
+
+    public void scrubProject(String name) throws Exception {
+        // configs first, so they don't re-create what we delete next
+        await(fanOut(Arrays.asList(
+            deleteAll("DeploymentConfigs", name, client.deploymentConfigs().inNamespace(name)),
+            deleteAll("BuildConfigs", name, client.buildConfigs().inNamespace(name))
+        )));
+        await(fanOut(Arrays.asList(
+            deleteAll("ReplicationControllers", name, client.replicationControllers().inNamespace(name)),
+            deleteAll("Builds", name, client.builds().inNamespace(name)),
+            deleteAll("Services", name, client.services().inNamespace(name)),
+            deleteAll("Routes", name, client.routes().inNamespace(name)),
+            deleteAll("ImageStreams", name, client.imageStreams().inNamespace(name)),
+            deleteAll("ConfigMaps", name, client.configMaps().inNamespace(name)),
+            deleteAll("PersistentVolumeClaims", name, client.persistentVolumeClaims().inNamespace(name)),
+            deleteSecrets(name),
+            deleteServiceAccounts(name),
+            deleteRoleBindings(name)
+        )));
+        await(fanOut(Collections.singletonList(
+            deleteAll("Pods", name, client.pods().inNamespace(name))
+        )));
+    }
+
+    private Callable<Void> deleteAll(final String kind, final String namespace, final Deletable<Boolean> deletable) {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                Boolean exists = deletable.delete();
+                log.info(String.format("%s [%s] delete: %s.", kind, namespace, exists));
+                return null;
+            }
+        };
+    }
+
+    // the kinds below keep what a new project comes with, hence deleted one by one
+
+    private Callable<Void> deleteSecrets(final String namespace) {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                for (Secret secret : client.secrets().inNamespace(namespace).list().getItems()) {
+                    if (isProjectDefault("Secret", secret.getMetadata().getName(), secret.getMetadata().getAnnotations()) == false) {
+                        client.secrets().inNamespace(namespace).withName(secret.getMetadata().getName()).delete();
+                    }
+                }
+                log.info(String.format("Secrets [%s] delete.", namespace));
+                return null;
+            }
+        };
+    }
+
+    private Callable<Void> deleteServiceAccounts(final String namespace) {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                for (ServiceAccount account : client.serviceAccounts().inNamespace(namespace).list().getItems()) {
+                    if (isProjectDefault("ServiceAccount", account.getMetadata().getName(), account.getMetadata().getAnnotations()) == false) {
+                        client.serviceAccounts().inNamespace(namespace).withName(account.getMetadata().getName()).delete();
+                    }
+                }
+                log.info(String.format("ServiceAccounts [%s] delete.", namespace));
+                return null;
+            }
+        };
+    }
+
+    private Callable<Void> deleteRoleBindings(final String namespace) {
+        return new Callable<Void>() {
+            public Void call() throws Exception {
+                for (RoleBinding binding : client.roleBindings().inNamespace(namespace).list().getItems()) {
+                    if (isProjectDefault("RoleBinding", binding.getMetadata().getName(), binding.getMetadata().getAnnotations()) == false) {
+                        client.roleBindings().inNamespace(namespace).withName(binding.getMetadata().getName()).delete();
+                    }
+                }
+                log.info(String.format("RoleBindings [%s] delete.", namespace));
+                return null;
+            }
+        };
+    }
+
     public void deletePod(String podName, long gracePeriodSeconds) {
         ClientPodResource<Pod, DoneablePod> resource = client.pods().inNamespace(configuration.getNamespace()).withName(podName);
         Deletable<Boolean> deletable = resource;
@@ -409,7 +535,14 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     private KubernetesList processTemplate(String templateURL, List<ParameterValue> values, Map<String, String> labels) throws IOException {
-        try (InputStream stream = new URL(templateURL).openStream()) {
+        byte[] content = getTemplate(templateURL);
+        if (configuration.isTemplateProcessLocal()) {
+            KubernetesList list = LocalTemplateProcessor.process(templateURL, content, values, labels);
+            if (list != null) {
+                return list;
+            }
+        }
+        try (InputStream stream = new ByteArrayInputStream(content)) {
             ClientTemplateResource<Template, KubernetesList, DoneableTemplate> templateHandle = client.templates().inNamespace(configuration.getNamespace()).load(stream);
             Template template = templateHandle.get();
             if (template.getLabels() == null) {
@@ -428,6 +561,113 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         return client.buildConfigs().inNamespace(namespace).withName(buildName).withSecret(secret).withType(type).trigger(new WebHookTriggerBuilder().withSecret(secret).build());
     }
 
+    public boolean supportsBinaryBuild() {
+        return true;
+    }
+
+    // fabric8 1.4 has no instantiatebinary operation, hence the raw request through the client's own OkHttp
+    public String binaryBuild(String buildConfig, Map<String, String> labels, final Archive<?> archive, final String dir) throws Exception {
+        final String namespace = configuration.getNamespace();
+        if (buildConfig == null) {
+            List<BuildConfig> configs = client.buildConfigs().inNamespace(namespace).withLabels(labels).list().getItems();
+            if (configs.size() != 1) {
+                throw new IllegalStateException(String.format("Expected single BuildConfig with labels %s, found %s", labels, configs.size()));
+            }
+            buildConfig = KubernetesHelper.getName(configs.get(0));
+        }
+
+        log.info(String.format("Starting binary build of %s with %s", buildConfig, archive.getName()));
+
+        OkHttpClient http = Adapters.get(OkHttpClient.class).adapt(client).newBuilder()
+            .readTimeout(configuration.getStartupTimeout(), TimeUnit.SECONDS)
+            .build();
+        String url = String.format("%snamespaces/%s/buildconfigs/%s/instantiatebinary", client.getOpenshiftUrl(), namespace, buildConfig);
+        // streamed as chunked body, the tar is never held in memory
+        RequestBody input = new RequestBody() {
+            public MediaType contentType() {
+                return MediaType.parse("application/octet-stream");
+            }
+
+            public void writeTo(BufferedSink sink) throws IOException {
+                writeBinaryInput(archive, dir, sink.outputStream());
+            }
+        };
+        Request request = new Request.Builder().url(url).post(input).build();
+        String build;
+        Response response = http.newCall(request).execute();
+        try (ResponseBody body = response.body()) {
+            if (response.isSuccessful() == false) {
+                throw new IllegalStateException(String.format("Cannot instantiate binary build of %s: %s %s", buildConfig, response.code(), body.string()));
+            }
+            build = new ObjectMapper().readTree(body.byteStream()).path("metadata").path("name").asText();
+        }
+
+        followBuildLog(http, build);
+        awaitBuild(build);
+        return build;
+    }
+
+    // best effort, the build outcome is tracked by the watch
+    private void followBuildLog(final OkHttpClient http, final String build) {
+        final String url = String.format("%snamespaces/%s/builds/%s/log?follow=true", client.getOpenshiftUrl(), configuration.getNamespace(), build);
+        new DaemonThreadFactory("ce-arq-build-log").newThread(new Runnable() {
+            public void run() {
+                try (ResponseBody body = http.newCall(new Request.Builder().url(url).build()).execute().body()) {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(body.byteStream(), StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        log.info(String.format("[%s] %s", build, line));
+                    }
+                } catch (Exception e) {
+                    log.log(Level.FINE, String.format("Cannot follow build log of %s: %s", build, e), e);
+                }
+            }
+        }).start();
+    }
+
+    private void awaitBuild(final String build) throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<String> phase = new AtomicReference<>();
+        Watch watch = client.builds().inNamespace(configuration.getNamespace()).withName(build).watch(new Watcher<Build>() {
+            public void eventReceived(Action action, Build resource) {
+                if (isFinished(resource)) {
+                    phase.set(resource.getStatus().getPhase());
+                    done.countDown();
+                }
+            }
+
+            public void onClose(KubernetesClientException cause) {
+                done.countDown();
+            }
+        });
+        try {
+            // it might have finished before the watch was in place
+            Build current = client.builds().inNamespace(configuration.getNamespace()).withName(build).get();
+            if (isFinished(current)) {
+                phase.set(current.getStatus().getPhase());
+                done.countDown();
+            }
+            if (done.await(configuration.getStartupTimeout(), TimeUnit.SECONDS) == false) {
+                throw new IllegalStateException(String.format("Build %s not finished in %ss", build, configuration.getStartupTimeout()));
+            }
+        } finally {
+            watch.close();
+        }
+
+        if ("Complete".equals(phase.get()) == false) {
+            throw new IllegalStateException(String.format("Build %s did not complete: %s", build, phase.get()));
+        }
+        log.info(String.format("Build %s complete.", build));
+    }
+
+    private static boolean isFinished(Build build) {
+        if (build == null || build.getStatus() == null) {
+            return false;
+        }
+        String phase = build.getStatus().getPhase();
+        return "Complete".equals(phase) || "Failed".equals(phase) || "Error".equals(phase) || "Cancelled".equals(phase);
+    }
+
     protected OpenShiftResourceHandle createResourceFromStream(InputStream stream) throws IOException {
     	
     	try {
@@ -571,6 +811,43 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
         return client.pods().inNamespace(configuration.getNamespace()).withName(podName).watchLog().getOutput();
     }
 
+    // fabric8 1.4 drops the timestamps log option, hence the raw request through the client's own OkHttp
+    public LogCollector collectLogs(final Map<String, String> labels, int tailLines) throws Exception {
+        final OkHttpClient http = Adapters.get(OkHttpClient.class).adapt(client).newBuilder()
+            .readTimeout(0, TimeUnit.MILLISECONDS) // followed
+            .build();
+        return new PodLogCollector(tailLines, configuration.getLogBufferLines()) {
+            protected Map<String, String> listPods() {
+                Map<String, String> pods = new HashMap<>();
+                for (Pod pod : client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).list().getItems()) {
+                    pods.put(KubernetesHelper.getName(pod), (pod.getStatus() != null) ? pod.getStatus().getPhase() : null);
+                }
+                return pods;
+            }
+
+            protected InputStream openLog(String podName, int tailLines, String sinceTime) throws IOException {
+                HttpUrl.Builder url = HttpUrl.parse(String.format("%sapi/v1/namespaces/%s/pods/%s/log", client.getMasterUrl(), configuration.getNamespace(), podName)).newBuilder()
+                    .addQueryParameter("follow", "true")
+                    .addQueryParameter("timestamps", "true");
+                if (sinceTime != null) {
+                    url.addQueryParameter("sinceTime", sinceTime);
+                } else if (tailLines >= 0) {
+                    url.addQueryParameter("tailLines", String.valueOf(tailLines));
+                }
+                Response response = http.newCall(new Request.Builder().url(url.build()).build()).execute();
+                if (response.isSuccessful() == false) {
+                    response.body().close();
+                    throw new IOException(String.format("Cannot follow log of pod %s: %s", podName, response.code()));
+                }
+                return response.body().byteStream();
+            }
+
+            protected boolean hasTimestamps() {
+                return true;
+            }
+        }.start();
+    }
+
     public String getLog(String prefix, Map<String, String> labels) throws Exception {
         List<Pod> pods;
         ClientNonNamespaceOperation<Pod, PodList, DoneablePod, ClientPodResource<Pod, DoneablePod>> allPods = client.pods().inNamespace(configuration.getNamespace());
@@ -677,43 +954,68 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void cleanReplicationControllers(String... ids) throws Exception {
-        for (String id : ids) {
-            try {
-                boolean exists = client.replicationControllers().inNamespace(configuration.getNamespace()).withName(id).cascading(false).delete();
-                log.info(String.format("RC [%s] delete: %s.", id, exists));
-            } catch (Exception e) {
-                log.log(Level.WARNING, String.format("Exception while deleting RC [%s]: %s", id, e), e);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final String id : ids) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    deleteReplicationController(id);
+                    return null;
+                }
+            });
+        }
+        await(fanOut(tasks));
+    }
+
+    private void deleteReplicationController(String id) {
+        try {
+            ReplicationController rc = client.replicationControllers().inNamespace(configuration.getNamespace()).withName(id).get();
+            if (rc == null) {
+                log.info(String.format("RC [%s] delete: false.", id));
+                return;
             }
+            // orphan the pods, then delete them by the RC's own selector -- no scale down and wait
+            boolean exists = client.replicationControllers().inNamespace(configuration.getNamespace()).withName(id).cascading(false).delete();
+            log.info(String.format("RC [%s] delete: %s.", id, exists));
+            Map<String, String> selector = (rc.getSpec() != null) ? rc.getSpec().getSelector() : null;
+            if (selector != null && selector.isEmpty() == false) {
+                cleanPods(selector);
+            }
+        } catch (Exception e) {
+            log.log(Level.WARNING, String.format("Exception while deleting RC [%s]: %s", id, e), e);
         }
     }
 
     public void cleanPods(Map<String, String> labels) throws Exception {
-        final PodList pods = client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).list();
         try {
-            for (Pod pod : pods.getItems()) {
-                String podId = KubernetesHelper.getName(pod);
-                boolean exists = client.pods().inNamespace(configuration.getNamespace()).withName(podId).delete();
-                log.info(String.format("Pod [%s] delete: %s.", podId, exists));
-            }
+            Boolean exists = client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).delete();
+            log.info(String.format("Pods [%s] delete: %s.", labels, exists));
         } catch (Exception e) {
             log.log(Level.WARNING, String.format("Exception while deleting pod [%s]: %s", labels, e), e);
         }
     }
 
     @Override
-    public void cleanRemnants(Map<String, String> labels) throws Exception {
-        cleanBuilds(labels);
-        cleanDeployments(labels);
+    public void cleanRemnants(final Map<String, String> labels) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(new Callable<Void>() {
+            public Void call() throws Exception {
+                cleanBuilds(labels);
+                return null;
+            }
+        });
+        tasks.add(new Callable<Void>() {
+            public Void call() throws Exception {
+                cleanDeployments(labels);
+                return null;
+            }
+        });
+        await(fanOut(tasks));
     }
 
     private void cleanBuilds(Map<String, String> labels) throws Exception {
-        final BuildList builds = client.builds().inNamespace(configuration.getNamespace()).withLabels(labels).list();
         try {
-            for (Build build : builds.getItems()) {
-                String buildId = KubernetesHelper.getName(build);
-                boolean exists = client.builds().inNamespace(configuration.getNamespace()).withName(buildId).delete();
-                log.info(String.format("Build [%s] delete: %s.", buildId, exists));
-            }
+            Boolean exists = client.builds().inNamespace(configuration.getNamespace()).withLabels(labels).delete();
+            log.info(String.format("Builds [%s] delete: %s.", labels, exists));
         } catch (Exception e) {
             log.log(Level.WARNING, String.format("Exception while deleting build [%s]: %s", labels, e), e);
         }
@@ -721,19 +1023,17 @@ public class F8OpenShiftAdapter extends AbstractOpenShiftAdapter {
 
     private void cleanDeployments(Map<String, String> labels) throws Exception {
         final ReplicationControllerList rcs = client.replicationControllers().inNamespace(configuration.getNamespace()).withLabels(labels).list();
-        try {
-            for (ReplicationController rc : rcs.getItems()) {
-                String rcId = KubernetesHelper.getName(rc);
-                client.replicationControllers().inNamespace(configuration.getNamespace()).withName(rcId).scale(0, true);
-                boolean exists = client.replicationControllers().inNamespace(configuration.getNamespace()).withName(rcId).delete();
-                log.info(String.format("ReplicationController [%s] delete: %s.", rcId, exists));
-            }
-        } catch (Exception e) {
-            log.log(Level.WARNING, String.format("Exception while deleting rc [%s]: %s", labels, e), e);
+        List<String> ids = new ArrayList<>();
+        for (ReplicationController rc : rcs.getItems()) {
+            ids.add(KubernetesHelper.getName(rc));
         }
+        // instead of scaling each RC down and waiting, orphan its pods and delete them by the RC's selector
+        cleanReplicationControllers(ids.toArray(new String[ids.size()]));
+        cleanPods(labels);
     }
 
     public void close() throws IOException {
+        super.close();
         templates.clear();
         if (client != null) {
             client.close();
@@ -23,6 +23,8 @@
 
 package org.jboss.arquillian.ce.fabric8;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -30,12 +32,17 @@ import javax.net.ssl.SSLContext;
 
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodCondition;
+import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.api.model.PodStatus;
 import io.fabric8.kubernetes.client.Adapters;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.internal.SSLUtils;
 import io.fabric8.openshift.client.OpenShiftClient;
 import okhttp3.OkHttpClient;
 import org.jboss.arquillian.ce.proxy.AbstractProxy;
+import org.jboss.arquillian.ce.proxy.PodWatcher;
 import org.jboss.arquillian.ce.utils.Configuration;
 import org.jboss.arquillian.ce.utils.OkHttpClientUtils;
 
@@ -74,6 +81,38 @@ public class F8Proxy extends AbstractProxy<Pod> {
         return client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).list().getItems();
     }
 
+    protected Closeable watchPods(Map<String, String> labels, final PodWatcher<Pod> watcher) {
+        PodList list = client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).list();
+        watcher.resync(list.getItems());
+
+        String resourceVersion = list.getMetadata().getResourceVersion();
+        final Watch watch = client.pods().inNamespace(configuration.getNamespace()).withLabels(labels).withResourceVersion(resourceVersion).watch(new Watcher<Pod>() {
+            public void eventReceived(Action action, Pod pod) {
+                switch (action) {
+                    case ADDED:
+                    case MODIFIED:
+                        watcher.modified(pod);
+                        break;
+                    case DELETED:
+                        watcher.deleted(pod);
+                        break;
+                    default:
+                        watcher.closed(new IllegalStateException("Watch error: " + pod));
+                }
+            }
+
+            public void onClose(KubernetesClientException cause) {
+                watcher.closed(cause);
+            }
+        });
+
+        return new Closeable() {
+            public void close() throws IOException {
+                watch.close();
+            }
+        };
+    }
+
     protected String getName(Pod pod) {
         return pod.getMetadata().getName();
     }
@@ -0,0 +1,208 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.fabric8;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.openshift.client.ParameterValue;
+
+/**
+ * Client-side template processing -- parameter substitution and labels, no server round trip.
+ * <p>
+ * Only JSON templates without values left to generate, or required values missing, are handled;
+ * anything else is left to the server.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class LocalTemplateProcessor {
+    private static final Logger log = Logger.getLogger(LocalTemplateProcessor.class.getName());
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern WHOLE_VALUE = Pattern.compile("^\\$\\{\\{([a-zA-Z0-9_]+)\\}\\}$");
+    private static final Pattern PARAMETER = Pattern.compile("\\$\\{\\{?([a-zA-Z0-9_]+)\\}?\\}");
+
+    /**
+     * @return the processed objects, or null if the template needs server-side processing
+     */
+    static KubernetesList process(String templateURL, byte[] content, List<ParameterValue> values, Map<String, String> labels) throws IOException {
+        JsonNode template;
+        try {
+            template = mapper.readTree(content);
+        } catch (JsonProcessingException e) {
+            log.info(String.format("Template %s is not JSON, processing it on the server.", templateURL));
+            return null;
+        }
+
+        // like the server, a value counts only when non-empty, otherwise generate wins
+        Map<String, String> parameters = new HashMap<>();
+        Set<String> generators = new HashSet<>();
+        Set<String> required = new HashSet<>();
+        for (JsonNode parameter : template.path("parameters")) {
+            String name = parameter.path("name").asText();
+            parameters.put(name, text(parameter, "value"));
+            if (text(parameter, "generate").isEmpty() == false) {
+                generators.add(name);
+            }
+            if (parameter.path("required").asBoolean()) {
+                required.add(name);
+            }
+        }
+        for (ParameterValue value : values) {
+            parameters.put(value.getName(), value.getValue() != null ? value.getValue() : "");
+        }
+
+        Set<String> generated = new HashSet<>();
+        Set<String> missing = new HashSet<>();
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            if (parameter.getValue().isEmpty()) {
+                if (generators.contains(parameter.getKey())) {
+                    generated.add(parameter.getKey());
+                } else if (required.contains(parameter.getKey())) {
+                    missing.add(parameter.getKey());
+                }
+            }
+        }
+        if (generated.isEmpty() == false) {
+            log.info(String.format("Template %s has generated parameters %s, processing it on the server.", templateURL, generated));
+            return null;
+        }
+        if (missing.isEmpty() == false) {
+            log.info(String.format("Template %s has required parameters %s without value, processing it on the server.", templateURL, missing));
+            return null;
+        }
+
+        Map<String, String> allLabels = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> templateLabels = template.path("labels").fields();
+        while (templateLabels.hasNext()) {
+            Map.Entry<String, JsonNode> label = templateLabels.next();
+            allLabels.put(label.getKey(), substitute(label.getValue().asText(), parameters));
+        }
+        allLabels.putAll(labels);
+
+        ArrayNode items = mapper.createArrayNode();
+        for (JsonNode object : template.path("objects")) {
+            JsonNode processed = substitute(object, parameters);
+            addLabels(processed, allLabels);
+            items.add(processed);
+        }
+
+        ObjectNode list = mapper.createObjectNode();
+        list.put("kind", "List");
+        list.put("apiVersion", "v1");
+        list.set("items", items);
+        return mapper.treeToValue(list, KubernetesList.class);
+    }
+
+    private static String text(JsonNode parameter, String field) {
+        return parameter.hasNonNull(field) ? parameter.get(field).asText() : "";
+    }
+
+    private static JsonNode substitute(JsonNode node, Map<String, String> parameters) throws IOException {
+        if (node.isObject()) {
+            ObjectNode copy = mapper.createObjectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                copy.set(field.getKey(), substitute(field.getValue(), parameters));
+            }
+            return copy;
+        } else if (node.isArray()) {
+            ArrayNode copy = mapper.createArrayNode();
+            for (JsonNode element : node) {
+                copy.add(substitute(element, parameters));
+            }
+            return copy;
+        } else if (node.isTextual()) {
+            String text = node.asText();
+            // ${{NAME}} as the whole value is replaced by a non-string value, e.g. a number
+            Matcher matcher = WHOLE_VALUE.matcher(text);
+            if (matcher.matches() && parameters.containsKey(matcher.group(1))) {
+                String value = parameters.get(matcher.group(1));
+                try {
+                    JsonNode parsed = mapper.readTree(value);
+                    return (parsed != null) ? parsed : new TextNode(value);
+                } catch (JsonProcessingException e) {
+                    return new TextNode(value);
+                }
+            }
+            return new TextNode(substitute(text, parameters));
+        } else {
+            return node;
+        }
+    }
+
+    private static String substitute(String text, Map<String, String> parameters) {
+        Matcher matcher = PARAMETER.matcher(text);
+        StringBuffer buffer = new StringBuffer();
+        while (matcher.find()) {
+            String value = parameters.get(matcher.group(1));
+            matcher.appendReplacement(buffer, Matcher.quoteReplacement(value != null ? value : matcher.group()));
+        }
+        matcher.appendTail(buffer);
+        return buffer.toString();
+    }
+
+    /**
+     * Like the server, label the objects and the pod templates of their controllers.
+     */
+    private static void addLabels(JsonNode object, Map<String, String> labels) {
+        if (labels.isEmpty() || object.isObject() == false) {
+            return;
+        }
+        putAll(object, labels);
+        String kind = object.path("kind").asText();
+        if ("DeploymentConfig".equals(kind) || "ReplicationController".equals(kind)) {
+            JsonNode template = object.path("spec").path("template");
+            if (template.isObject()) {
+                putAll(template, labels);
+            }
+        }
+    }
+
+    private static void putAll(JsonNode parent, Map<String, String> labels) {
+        ObjectNode metadata = ((ObjectNode) parent).with("metadata");
+        ObjectNode existing = metadata.with("labels");
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            if (existing.has(label.getKey()) == false) {
+                existing.put(label.getKey(), label.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.fabric8;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.openshift.client.ParameterValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class LocalTemplateProcessorTest {
+    private static final Map<String, String> NO_LABELS = Collections.emptyMap();
+
+    @Test
+    public void testSubstitution() throws Exception {
+        KubernetesList list = process(template("{\"name\": \"NAME\", \"value\": \"default\"}, {\"name\": \"PORT\", \"value\": \"8080\"}"),
+            Collections.singletonList(new ParameterValue("NAME", "svc")), Collections.singletonMap("test", "true"));
+        Assert.assertNotNull(list);
+        Service service = service(list);
+        Assert.assertEquals("svc-app", service.getMetadata().getName());
+        Assert.assertEquals(Integer.valueOf(8080), service.getSpec().getPorts().get(0).getPort());
+        Assert.assertEquals("true", service.getMetadata().getLabels().get("test"));
+        Assert.assertEquals("svc", service.getMetadata().getLabels().get("template"));
+    }
+
+    @Test
+    public void testNotJson() throws Exception {
+        Assert.assertNull(LocalTemplateProcessor.process("test", "kind: Template".getBytes(StandardCharsets.UTF_8), Collections.<ParameterValue>emptyList(), NO_LABELS));
+    }
+
+    @Test
+    public void testGenerated() throws Exception {
+        String generated = "{\"name\": \"NAME\", \"generate\": \"expression\", \"from\": \"[a-z]{8}\"}, {\"name\": \"PORT\", \"value\": \"8080\"}";
+        Assert.assertNull(process(template(generated), Collections.<ParameterValue>emptyList(), NO_LABELS));
+        // an empty value doesn't count, generate wins
+        Assert.assertNull(process(template(generated), Collections.singletonList(new ParameterValue("NAME", "")), NO_LABELS));
+        Assert.assertNotNull(process(template(generated), Collections.singletonList(new ParameterValue("NAME", "svc")), NO_LABELS));
+
+        String emptyValue = "{\"name\": \"NAME\", \"value\": \"\", \"generate\": \"expression\", \"from\": \"[a-z]{8}\"}, {\"name\": \"PORT\", \"value\": \"8080\"}";
+        Assert.assertNull(process(template(emptyValue), Collections.<ParameterValue>emptyList(), NO_LABELS));
+    }
+
+    @Test
+    public void testRequired() throws Exception {
+        String required = "{\"name\": \"NAME\", \"required\": true}, {\"name\": \"PORT\", \"value\": \"8080\"}";
+        Assert.assertNull(process(template(required), Collections.<ParameterValue>emptyList(), NO_LABELS));
+        Assert.assertNull(process(template(required), Collections.singletonList(new ParameterValue("NAME", "")), NO_LABELS));
+        Assert.assertNotNull(process(template(required), Collections.singletonList(new ParameterValue("NAME", "svc")), NO_LABELS));
+
+        // optional parameters may stay empty
+        String optional = "{\"name\": \"NAME\"}, {\"name\": \"PORT\", \"value\": \"8080\"}";
+        KubernetesList list = process(template(optional), Collections.<ParameterValue>emptyList(), NO_LABELS);
+        Assert.assertNotNull(list);
+        Assert.assertEquals("-app", service(list).getMetadata().getName());
+    }
+
+    @Test
+    public void testProvidedOverridesDefault() throws Exception {
+        String defaults = "{\"name\": \"NAME\", \"value\": \"default\"}, {\"name\": \"PORT\", \"value\": \"8080\"}";
+        List<ParameterValue> values = Arrays.asList(new ParameterValue("NAME", "svc"), new ParameterValue("PORT", "9090"));
+        Service service = service(process(template(defaults), values, NO_LABELS));
+        Assert.assertEquals("svc-app", service.getMetadata().getName());
+        Assert.assertEquals(Integer.valueOf(9090), service.getSpec().getPorts().get(0).getPort());
+    }
+
+    private static KubernetesList process(String template, List<ParameterValue> values, Map<String, String> labels) throws Exception {
+        return LocalTemplateProcessor.process("test", template.getBytes(StandardCharsets.UTF_8), values, labels);
+    }
+
+    private static Service service(KubernetesList list) {
+        for (HasMetadata item : list.getItems()) {
+            if (item instanceof Service) {
+                return (Service) item;
+            }
+        }
+        throw new IllegalStateException("No service in " + list);
+    }
+
+    private static String template(String parameters) {
+        return "{\"kind\": \"Template\", \"apiVersion\": \"v1\", \"metadata\": {\"name\": \"test\"},"
+            + " \"labels\": {\"template\": \"${NAME}\"},"
+            + " \"parameters\": [" + parameters + "],"
+            + " \"objects\": [{\"kind\": \"Service\", \"apiVersion\": \"v1\", \"metadata\": {\"name\": \"${NAME}-app\"},"
+            + " \"spec\": {\"ports\": [{\"port\": \"${{PORT}}\"}]}}]}";
+    }
+}
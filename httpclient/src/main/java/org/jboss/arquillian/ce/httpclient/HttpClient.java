@@ -25,6 +25,7 @@ package org.jboss.arquillian.ce.httpclient;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.Future;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
@@ -33,4 +34,22 @@ public interface HttpClient extends Closeable {
     HttpResponse execute(HttpRequest request) throws IOException;
 
     HttpResponse execute(HttpRequest request, HttpClientExecuteOptions options) throws IOException;
+
+    /**
+     * Execute on the client's own threads; the request must not be re-used until it's done.
+     */
+    Future<HttpResponse> executeAsync(HttpRequest request);
+
+    Future<HttpResponse> executeAsync(HttpRequest request, HttpClientExecuteOptions options);
+
+    /**
+     * Fire copies of the request concurrently, reading each response body.
+     *
+     * @param request     the request
+     * @param count       the number of requests
+     * @param concurrency the max requests in flight, capped at the max connections per route
+     * @return the latencies
+     * @throws InterruptedException if interrupted while waiting
+     */
+    LatencyHistogram fire(HttpRequest request, int count, int concurrency) throws InterruptedException;
 }
@@ -44,6 +44,9 @@ import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
  */
 public class HttpClientBuilder {
     private org.apache.http.impl.client.HttpClientBuilder builder;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private int maxConnectionsPerRoute = 20;
+    private int maxConnections = 100;
 
     private HttpClientBuilder() {
         builder = org.apache.http.impl.client.HttpClientBuilder.create();
@@ -71,7 +74,34 @@ public class HttpClientBuilder {
     }
 
     public HttpClient build() {
-        return new HttpClientImpl(builder.build());
+        if (connectionManager != null) {
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            connectionManager.setMaxTotal(maxConnections);
+        } else {
+            builder.setMaxConnPerRoute(maxConnectionsPerRoute);
+            builder.setMaxConnTotal(maxConnections);
+        }
+        return new HttpClientImpl(builder.build(), maxConnections, maxConnectionsPerRoute);
+    }
+
+    /**
+     * Pooled connections per route, e.g. per OpenShift route host. Default value is 20.
+     * <p>
+     * This bounds the requests in flight to a single host, whatever the total or the async threads.
+     */
+    public HttpClientBuilder setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+        return this;
+    }
+
+    /**
+     * Pooled connections in total, across routes, also the number of async execute threads. Default value is 100.
+     * <p>
+     * Requests to a single host are still bound by the max connections per route.
+     */
+    public HttpClientBuilder setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+        return this;
     }
 
     public HttpClientBuilder setCookieStore(Object cookieStore) {
@@ -108,8 +138,8 @@ public class HttpClientBuilder {
 
         // now, we create connection-manager using our Registry.
         //      -- allows multi-threaded use
-        PoolingHttpClientConnectionManager connMgr = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
-        builder.setConnectionManager(connMgr);
+        connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        builder.setConnectionManager(connectionManager);
 
         // finally, build the HttpClient;
         //      -- done!
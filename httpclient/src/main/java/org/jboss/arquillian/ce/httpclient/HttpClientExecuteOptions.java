@@ -33,11 +33,15 @@ public class HttpClientExecuteOptions {
     private final int tries;
     private final int delay;
     private final int desiredStatusCode;
+    private final RetryPolicy retryPolicy;
+    private final RetryListener retryListener;
 
     private HttpClientExecuteOptions(Builder b) {
         tries = b.tries;
         delay = b.delay;
         desiredStatusCode = b.desiredStatusCode;
+        retryPolicy = b.retryPolicy;
+        retryListener = b.retryListener;
     }
 
     public int getTries() {
@@ -52,13 +56,29 @@ public class HttpClientExecuteOptions {
         return desiredStatusCode;
     }
 
+    /**
+     * @return the retry policy, or the fixed delay one made of tries, delay and desired status code
+     */
+    public RetryPolicy getRetryPolicy() {
+        if (retryPolicy != null) {
+            return retryPolicy;
+        }
+        return RetryPolicy.fixed(tries, delay * 1000L, desiredStatusCode);
+    }
+
+    public RetryListener getRetryListener() {
+        return retryListener;
+    }
+
     public static class Builder {
         private int tries = 1;
         private int delay = 5;
         private int desiredStatusCode = -1;
+        private RetryPolicy retryPolicy;
+        private RetryListener retryListener;
 
         /**
-         * How many tries should we do before giving up. Default value is 1.
+         * How many tries should we do before giving up. Default value is 1, lower values still make one try.
          *
          * @param value number of tries
          * @return this
@@ -92,6 +112,28 @@ public class HttpClientExecuteOptions {
             return this;
         }
 
+        /**
+         * If set, it replaces tries, delay and desired status code.
+         *
+         * @param value retry policy
+         * @return this
+         */
+        public Builder retryPolicy(RetryPolicy value) {
+            retryPolicy = value;
+            return this;
+        }
+
+        /**
+         * Receives retry metrics. By default they're logged.
+         *
+         * @param value retry listener
+         * @return this
+         */
+        public Builder retryListener(RetryListener value) {
+            retryListener = value;
+            return this;
+        }
+
         public HttpClientExecuteOptions build() {
             return new HttpClientExecuteOptions(this);
         }
@@ -24,9 +24,19 @@
 package org.jboss.arquillian.ce.httpclient;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.CloneUtils;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.util.EntityUtils;
 
@@ -34,10 +44,39 @@ import org.apache.http.util.EntityUtils;
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 class HttpClientImpl implements HttpClient {
+    private static final Logger log = Logger.getLogger(HttpClientImpl.class.getName());
+
+    private static final RetryListener LOGGING_LISTENER = new RetryListener() {
+        public void retrying(RetryStats stats, long delay) {
+            log.info(String.format("%s, trying again in %dms.", stats, delay));
+        }
+
+        public void finished(RetryStats stats) {
+            if (stats.getTries() > 1 || stats.isAccepted() == false) {
+                log.info(stats.toString());
+            }
+        }
+    };
+
+    private static final ThreadFactory THREADS = new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ce-arq-http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
     private CloseableHttpClient client;
+    private final int threads;
+    private final int maxPerRoute;
+    private ExecutorService executor;
 
-    public HttpClientImpl(CloseableHttpClient client) {
+    public HttpClientImpl(CloseableHttpClient client, int threads, int maxPerRoute) {
         this.client = client;
+        this.threads = threads;
+        this.maxPerRoute = maxPerRoute;
     }
 
     public HttpResponse execute(HttpRequest request) throws IOException {
@@ -45,49 +84,125 @@ class HttpClientImpl implements HttpClient {
     }
 
     public HttpResponse execute(HttpRequest request, HttpClientExecuteOptions options) throws IOException {
-        IOException exception = null;
         HttpUriRequest r = HttpRequestImpl.class.cast(request).unwrap();
-        CloseableHttpResponse rawResponse = null;
-        HttpResponse response = null;
+        RetryPolicy policy = options.getRetryPolicy();
+        RetryListener listener = options.getRetryListener() != null ? options.getRetryListener() : LOGGING_LISTENER;
 
-        for (int i = 0; i < options.getTries(); i++) {
+        long start = System.currentTimeMillis();
+        long backoff = 0;
+        for (int tries = 1; ; tries++) {
+            CloseableHttpResponse rawResponse = null;
+            HttpResponse response = null;
+            IOException exception = null;
+            boolean retry;
             try {
-                if (rawResponse != null) {
-                    EntityUtils.consume(rawResponse.getEntity());
-                }
                 rawResponse = client.execute(r);
                 response = new HttpResponseImpl(rawResponse);
-                if (options.getDesiredStatusCode() == -1 || response.getResponseCode() == options.getDesiredStatusCode()) {
-                    return response;
-                }
-                System.err.println(String.format("Response error [URL:%s]: Got code %d, expected %d.", r.getURI(),
-                        response.getResponseCode(), options.getDesiredStatusCode()));
+                retry = policy.shouldRetry(response.getResponseCode());
             } catch (IOException e) {
                 exception = e;
-                System.err.println(String.format("Execute error [URL:%s]: %s.", r.getURI(), e));
+                retry = policy.shouldRetry(e);
             }
 
-            if (i + 1 < options.getTries()) {
-                System.err.println(String.format("Trying again in %d seconds.", options.getDelay()));
-                try {
-                    Thread.sleep(options.getDelay() * 1000);
-                } catch (InterruptedException e) {
-                    exception = new IOException(e);
-                    break;
+            long delay = policy.delay(tries);
+            long elapsed = System.currentTimeMillis() - start;
+            boolean pastDeadline = policy.getDeadline() >= 0 && elapsed + delay > policy.getDeadline();
+            int statusCode = response != null ? response.getResponseCode() : -1;
+            boolean lastTry = policy.getTries() >= 0 && tries >= policy.getTries();
+            if (retry == false || lastTry || pastDeadline) {
+                listener.finished(new RetryStats(r.getURI(), tries, elapsed, backoff, statusCode, exception, exception == null && retry == false));
+                if (exception != null) {
+                    throw exception;
                 }
-            } else {
-                System.err.println(String.format("Giving up trying URL:%s after %d tries", r.getURI(), options.getTries()));
+                return response;
+            }
+
+            listener.retrying(new RetryStats(r.getURI(), tries, elapsed, backoff, statusCode, exception, false), delay);
+            if (rawResponse != null) {
+                EntityUtils.consume(rawResponse.getEntity());
             }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            backoff += delay;
         }
+    }
 
-        if (exception != null) {
-            throw exception;
+    public Future<HttpResponse> executeAsync(HttpRequest request) {
+        return executeAsync(request, new HttpClientExecuteOptions.Builder().build());
+    }
+
+    public Future<HttpResponse> executeAsync(final HttpRequest request, final HttpClientExecuteOptions options) {
+        return getExecutor().submit(new Callable<HttpResponse>() {
+            public HttpResponse call() throws Exception {
+                return execute(request, options);
+            }
+        });
+    }
+
+    // one thread per pooled connection; requests to a single host still wait for one of its route's connections
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, THREADS);
+        }
+        return executor;
+    }
+
+    public LatencyHistogram fire(HttpRequest request, int count, int concurrency) throws InterruptedException {
+        HttpUriRequest r = HttpRequestImpl.class.cast(request).unwrap();
+        if (concurrency > maxPerRoute) {
+            // more would only queue for a connection, and the wait would count as latency
+            log.warning(String.format("Concurrency %d capped at %d max connections per route.", concurrency, maxPerRoute));
+            concurrency = maxPerRoute;
         }
+        final LatencyHistogram histogram = new LatencyHistogram(count);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final HttpUriRequest copy = copy(r);
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    long start = System.nanoTime();
+                    try (CloseableHttpResponse response = client.execute(copy)) {
+                        EntityUtils.consume(response.getEntity());
+                        histogram.record(response.getStatusLine().getStatusCode(), System.nanoTime() - start);
+                    } catch (IOException e) {
+                        histogram.error();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ExecutorService fireExecutor = Executors.newFixedThreadPool(concurrency, THREADS);
+        long start = System.nanoTime();
+        try {
+            fireExecutor.invokeAll(tasks);
+        } finally {
+            fireExecutor.shutdownNow();
+        }
+        histogram.done(System.nanoTime() - start);
+        log.info(String.format("Fired %d x %s: %s", count, r.getURI(), histogram));
+        return histogram;
+    }
 
-        return response;
+    // requests are stateful, hence a copy per concurrent execute
+    private static HttpUriRequest copy(HttpUriRequest request) {
+        try {
+            return CloneUtils.cloneObject(request);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalArgumentException("Cannot copy request: " + request, e);
+        }
     }
 
     public void close() throws IOException {
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
         client.close();
     }
 }
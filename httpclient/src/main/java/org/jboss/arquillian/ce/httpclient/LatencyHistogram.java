@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.httpclient;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Latencies of concurrently fired requests, from send until the response body is read.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class LatencyHistogram {
+    private final long[] latencies; // nanos, of responses only
+    private final Map<Integer, Integer> statusCodes = new TreeMap<>();
+    private int size;
+    private int errors;
+    private long elapsed;
+
+    LatencyHistogram(int count) {
+        this.latencies = new long[count];
+    }
+
+    synchronized void record(int statusCode, long nanos) {
+        latencies[size++] = nanos;
+        Integer current = statusCodes.get(statusCode);
+        statusCodes.put(statusCode, current != null ? current + 1 : 1);
+    }
+
+    synchronized void error() {
+        errors++;
+    }
+
+    synchronized void done(long elapsedNanos) {
+        elapsed = elapsedNanos;
+        Arrays.sort(latencies, 0, size);
+    }
+
+    /**
+     * @return number of responses
+     */
+    public synchronized int getCount() {
+        return size;
+    }
+
+    /**
+     * @return number of requests which failed with an exception
+     */
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return response count per status code
+     */
+    public synchronized Map<Integer, Integer> getStatusCodes() {
+        return Collections.unmodifiableMap(new TreeMap<>(statusCodes));
+    }
+
+    /**
+     * @return responses per second, over all requests
+     */
+    public synchronized double getThroughput() {
+        return elapsed > 0 ? size * 1e9 / elapsed : Double.NaN;
+    }
+
+    public synchronized double getMin() {
+        return size > 0 ? millis(latencies[0]) : Double.NaN;
+    }
+
+    public synchronized double getMax() {
+        return size > 0 ? millis(latencies[size - 1]) : Double.NaN;
+    }
+
+    public synchronized double getMean() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += latencies[i];
+        }
+        return millis(sum) / size;
+    }
+
+    /**
+     * @param percentile the percentile, e.g. 99
+     * @return latency in millis, nearest rank
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+        }
+        if (size == 0) {
+            return Double.NaN;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * size);
+        return millis(latencies[rank - 1]);
+    }
+
+    /**
+     * @return response count per power of two millis bucket, keyed by the bucket's upper bound
+     */
+    public synchronized SortedMap<Long, Integer> getBuckets() {
+        SortedMap<Long, Integer> buckets = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            long bound = 1;
+            while (bound * 1000000L < latencies[i]) {
+                bound <<= 1;
+            }
+            Integer current = buckets.get(bound);
+            buckets.put(bound, current != null ? current + 1 : 1);
+        }
+        return buckets;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LatencyHistogram[count=%d, errors=%d, status=%s, min=%.1fms, mean=%.1fms, p50=%.1fms, p99=%.1fms, max=%.1fms, throughput=%.1f/s]",
+            getCount(), getErrors(), getStatusCodes(), getMin(), getMean(), size > 0 ? getPercentile(50) : Double.NaN, size > 0 ? getPercentile(99) : Double.NaN, getMax(), getThroughput());
+    }
+}
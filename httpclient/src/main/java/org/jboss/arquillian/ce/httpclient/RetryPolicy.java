@@ -0,0 +1,256 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.httpclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When and how long to wait before retrying a request.
+ * Use the RetryPolicy.Builder to create an instance.
+ * <p>
+ * A response is retried if its status code is in the retry set or matches a retry condition;
+ * an exception is retried if it's an instance of a retry exception class (IOException by default).
+ * Delays grow exponentially, with random jitter, up to the max delay; no retry is made past the deadline.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class RetryPolicy {
+    /**
+     * Status code condition.
+     */
+    public interface StatusCondition {
+        boolean matches(int statusCode);
+    }
+
+    private final int tries;
+    private final long delay;
+    private final long maxDelay;
+    private final double multiplier;
+    private final double jitter;
+    private final long deadline;
+    private final Set<Integer> statusCodes;
+    private final List<StatusCondition> conditions;
+    private final List<Class<? extends IOException>> exceptions;
+
+    private RetryPolicy(Builder b) {
+        tries = b.tries;
+        delay = b.delay;
+        maxDelay = b.maxDelay;
+        multiplier = b.multiplier;
+        jitter = b.jitter;
+        deadline = b.deadline;
+        statusCodes = Collections.unmodifiableSet(new HashSet<>(b.statusCodes));
+        conditions = Collections.unmodifiableList(new ArrayList<>(b.conditions));
+        exceptions = Collections.unmodifiableList(new ArrayList<>(b.exceptions));
+    }
+
+    /**
+     * The fixed delay policy of the plain execute options.
+     * The delay is not capped, and there is always at least one try.
+     */
+    static RetryPolicy fixed(int tries, long delay, final int desiredStatusCode) {
+        Builder builder = new Builder().tries(Math.max(1, tries)).delay(delay).maxDelay(delay).multiplier(1).jitter(0);
+        if (desiredStatusCode != -1) {
+            builder.retryIf(new StatusCondition() {
+                public boolean matches(int statusCode) {
+                    return statusCode != desiredStatusCode;
+                }
+            });
+        }
+        return builder.build();
+    }
+
+    public int getTries() {
+        return tries;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    boolean shouldRetry(int statusCode) {
+        if (statusCodes.contains(statusCode)) {
+            return true;
+        }
+        for (StatusCondition condition : conditions) {
+            if (condition.matches(statusCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean shouldRetry(IOException exception) {
+        for (Class<? extends IOException> exceptionClass : exceptions) {
+            if (exceptionClass.isInstance(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param retry the retry, starting with 1
+     * @return delay before the retry, in millis
+     */
+    long delay(int retry) {
+        double backoff = Math.min(delay * Math.pow(multiplier, retry - 1), maxDelay);
+        if (jitter > 0) {
+            backoff = backoff * (1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble());
+        }
+        return (long) backoff;
+    }
+
+    public static class Builder {
+        private int tries = 5;
+        private long delay = 100;
+        private long maxDelay = 10000;
+        private double multiplier = 2;
+        private double jitter = 0.2;
+        private long deadline = -1;
+        private Set<Integer> statusCodes = new HashSet<>();
+        private List<StatusCondition> conditions = new ArrayList<>();
+        private List<Class<? extends IOException>> exceptions = new ArrayList<>();
+
+        /**
+         * How many tries should we do before giving up. Default value is 5, -1 means no limit, e.g. with a deadline.
+         *
+         * @param value number of tries
+         * @return this
+         */
+        public Builder tries(int value) {
+            tries = value;
+            return this;
+        }
+
+        /**
+         * Delay, in millis, before the first retry. Default value is 100.
+         *
+         * @param value delay
+         * @return this
+         */
+        public Builder delay(long value) {
+            delay = value;
+            return this;
+        }
+
+        /**
+         * Max delay, in millis, between tries. Default value is 10000.
+         *
+         * @param value max delay
+         * @return this
+         */
+        public Builder maxDelay(long value) {
+            maxDelay = value;
+            return this;
+        }
+
+        /**
+         * Delay growth factor, per retry. Default value is 2.
+         *
+         * @param value multiplier
+         * @return this
+         */
+        public Builder multiplier(double value) {
+            multiplier = value;
+            return this;
+        }
+
+        /**
+         * Random delay deviation, as a fraction of the delay. Default value is 0.2, i.e. +/- 20%.
+         *
+         * @param value jitter, between 0 and 1
+         * @return this
+         */
+        public Builder jitter(double value) {
+            if (value < 0 || value > 1) {
+                throw new IllegalArgumentException("Jitter must be between 0 and 1: " + value);
+            }
+            jitter = value;
+            return this;
+        }
+
+        /**
+         * Overall time, in millis, after which no more retries are made. Default value is -1, no deadline.
+         *
+         * @param value deadline
+         * @return this
+         */
+        public Builder deadline(long value) {
+            deadline = value;
+            return this;
+        }
+
+        /**
+         * Retry responses with these status codes, e.g. 502 and 503.
+         *
+         * @param values status codes
+         * @return this
+         */
+        public Builder retryOn(int... values) {
+            for (int value : values) {
+                statusCodes.add(value);
+            }
+            return this;
+        }
+
+        /**
+         * Retry responses with matching status codes.
+         *
+         * @param value the condition
+         * @return this
+         */
+        public Builder retryIf(StatusCondition value) {
+            conditions.add(value);
+            return this;
+        }
+
+        /**
+         * Retry on these exceptions. Default is any IOException.
+         *
+         * @param values exception classes
+         * @return this
+         */
+        @SafeVarargs
+        public final Builder retryOn(Class<? extends IOException>... values) {
+            for (Class<? extends IOException> value : values) {
+                exceptions.add(value);
+            }
+            return this;
+        }
+
+        public RetryPolicy build() {
+            if (exceptions.isEmpty()) {
+                exceptions.add(IOException.class);
+            }
+            return new RetryPolicy(this);
+        }
+    }
+}
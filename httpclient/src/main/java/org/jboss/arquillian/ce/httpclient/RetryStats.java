@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.httpclient;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Retry metrics of an execute.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class RetryStats {
+    private final URI uri;
+    private final int tries;
+    private final long elapsed;
+    private final long backoff;
+    private final int statusCode;
+    private final IOException exception;
+    private final boolean accepted;
+
+    RetryStats(URI uri, int tries, long elapsed, long backoff, int statusCode, IOException exception, boolean accepted) {
+        this.uri = uri;
+        this.tries = tries;
+        this.elapsed = elapsed;
+        this.backoff = backoff;
+        this.statusCode = statusCode;
+        this.exception = exception;
+        this.accepted = accepted;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * @return tries made so far
+     */
+    public int getTries() {
+        return tries;
+    }
+
+    /**
+     * @return millis since the first try
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return millis spent waiting between tries
+     */
+    public long getBackoff() {
+        return backoff;
+    }
+
+    /**
+     * @return status code of the last try, -1 if it failed with an exception
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return exception of the last try, null if it got a response
+     */
+    public IOException getException() {
+        return exception;
+    }
+
+    /**
+     * @return true if the last response was accepted, false if we gave up
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RetryStats[uri=%s, tries=%d, elapsed=%dms, backoff=%dms, status=%d, exception=%s, accepted=%s]",
+            uri, tries, elapsed, backoff, statusCode, exception, accepted);
+    }
+}
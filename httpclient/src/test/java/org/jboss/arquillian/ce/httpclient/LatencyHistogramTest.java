@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.httpclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class LatencyHistogramTest {
+    private static final double DELTA = 1e-9;
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testStatistics() {
+        LatencyHistogram histogram = new LatencyHistogram(10);
+        for (int i = 10; i >= 1; i--) {
+            histogram.record(i % 5 == 0 ? 503 : 200, i * MS);
+        }
+        histogram.error();
+        histogram.done(2000 * MS);
+
+        Assert.assertEquals(10, histogram.getCount());
+        Assert.assertEquals(1, histogram.getErrors());
+        Assert.assertEquals(Integer.valueOf(8), histogram.getStatusCodes().get(200));
+        Assert.assertEquals(Integer.valueOf(2), histogram.getStatusCodes().get(503));
+        Assert.assertEquals(1, histogram.getMin(), DELTA);
+        Assert.assertEquals(10, histogram.getMax(), DELTA);
+        Assert.assertEquals(5.5, histogram.getMean(), DELTA);
+        Assert.assertEquals(5, histogram.getThroughput(), DELTA);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(100);
+        for (int i = 100; i >= 1; i--) {
+            histogram.record(200, i * MS);
+        }
+        histogram.done(MS);
+        Assert.assertEquals(50, histogram.getPercentile(50), DELTA);
+        Assert.assertEquals(99, histogram.getPercentile(99), DELTA);
+        Assert.assertEquals(100, histogram.getPercentile(100), DELTA);
+        Assert.assertEquals(1, histogram.getPercentile(0.1), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new LatencyHistogram(1).getPercentile(0);
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram(0);
+        histogram.done(0);
+        Assert.assertTrue(Double.isNaN(histogram.getMin()));
+        Assert.assertTrue(Double.isNaN(histogram.getMean()));
+        Assert.assertTrue(Double.isNaN(histogram.getPercentile(99)));
+        Assert.assertTrue(Double.isNaN(histogram.getThroughput()));
+        Assert.assertTrue(histogram.getBuckets().isEmpty());
+        Assert.assertNotNull(histogram.toString());
+    }
+
+    @Test
+    public void testBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram(4);
+        histogram.record(200, MS / 2);
+        histogram.record(200, MS);
+        histogram.record(200, 3 * MS);
+        histogram.record(200, 4 * MS + 1);
+        histogram.done(MS);
+        SortedMap<Long, Integer> buckets = histogram.getBuckets();
+        Assert.assertEquals(Integer.valueOf(2), buckets.get(1L));
+        Assert.assertEquals(Integer.valueOf(1), buckets.get(4L));
+        Assert.assertEquals(Integer.valueOf(1), buckets.get(8L));
+        Assert.assertEquals(3, buckets.size());
+    }
+
+    @Test
+    public void testFireCappedPerRoute() throws Exception {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                int current = inFlight.incrementAndGet();
+                synchronized (maxInFlight) {
+                    maxInFlight.set(Math.max(maxInFlight.get(), current));
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                exchange.sendResponseHeaders(200, 2);
+                try (OutputStream stream = exchange.getResponseBody()) {
+                    stream.write("ok".getBytes("UTF-8"));
+                }
+            }
+        });
+        server.start();
+        try (HttpClient client = HttpClientBuilder.create().setMaxConnectionsPerRoute(2).build()) {
+            String url = String.format("http://127.0.0.1:%s/", server.getAddress().getPort());
+            LatencyHistogram histogram = client.fire(HttpClientBuilder.doGET(url), 20, 10);
+            Assert.assertEquals(20, histogram.getCount());
+            Assert.assertEquals(Integer.valueOf(20), histogram.getStatusCodes().get(200));
+            Assert.assertTrue(String.valueOf(maxInFlight.get()), maxInFlight.get() <= 2);
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.httpclient;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void testExponentialDelay() {
+        RetryPolicy policy = new RetryPolicy.Builder().delay(100).multiplier(2).maxDelay(1000).jitter(0).build();
+        Assert.assertEquals(100, policy.delay(1));
+        Assert.assertEquals(200, policy.delay(2));
+        Assert.assertEquals(400, policy.delay(3));
+        Assert.assertEquals(800, policy.delay(4));
+        Assert.assertEquals(1000, policy.delay(5)); // capped
+        Assert.assertEquals(1000, policy.delay(50));
+    }
+
+    @Test
+    public void testJitterBounds() {
+        RetryPolicy policy = new RetryPolicy.Builder().delay(1000).multiplier(1).jitter(0.2).build();
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.delay(1);
+            Assert.assertTrue(String.valueOf(delay), delay >= 800 && delay <= 1200);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJitter() {
+        new RetryPolicy.Builder().jitter(1.5);
+    }
+
+    @Test
+    public void testShouldRetryStatus() {
+        RetryPolicy policy = new RetryPolicy.Builder().retryOn(502, 503).retryIf(new RetryPolicy.StatusCondition() {
+            public boolean matches(int statusCode) {
+                return statusCode == 429;
+            }
+        }).build();
+        Assert.assertTrue(policy.shouldRetry(502));
+        Assert.assertTrue(policy.shouldRetry(503));
+        Assert.assertTrue(policy.shouldRetry(429));
+        Assert.assertFalse(policy.shouldRetry(200));
+        Assert.assertFalse(policy.shouldRetry(500));
+    }
+
+    @Test
+    public void testShouldRetryException() {
+        RetryPolicy any = new RetryPolicy.Builder().build();
+        Assert.assertTrue(any.shouldRetry(new IOException()));
+        Assert.assertTrue(any.shouldRetry(new ConnectException()));
+
+        RetryPolicy connect = new RetryPolicy.Builder().retryOn(ConnectException.class).build();
+        Assert.assertTrue(connect.shouldRetry(new ConnectException()));
+        Assert.assertFalse(connect.shouldRetry(new SocketTimeoutException()));
+        Assert.assertFalse(connect.shouldRetry(new IOException()));
+    }
+
+    @Test
+    public void testFixed() {
+        RetryPolicy policy = RetryPolicy.fixed(3, 500, 200);
+        Assert.assertEquals(3, policy.getTries());
+        Assert.assertEquals(-1, policy.getDeadline());
+        Assert.assertEquals(500, policy.delay(1));
+        Assert.assertEquals(500, policy.delay(3));
+        Assert.assertFalse(policy.shouldRetry(200));
+        Assert.assertTrue(policy.shouldRetry(404));
+        Assert.assertTrue(policy.shouldRetry(new IOException()));
+    }
+
+    @Test
+    public void testFixedLongDelay() {
+        RetryPolicy policy = RetryPolicy.fixed(2, 30000, 200);
+        Assert.assertEquals(30000, policy.delay(1));
+        Assert.assertEquals(30000, policy.delay(2));
+    }
+
+    @Test
+    public void testFixedAtLeastOneTry() {
+        Assert.assertEquals(1, RetryPolicy.fixed(0, 100, 200).getTries());
+        Assert.assertEquals(1, RetryPolicy.fixed(-1, 100, 200).getTries());
+    }
+
+    @Test
+    public void testFixedWithoutStatus() {
+        RetryPolicy policy = RetryPolicy.fixed(2, 100, -1);
+        Assert.assertFalse(policy.shouldRetry(200));
+        Assert.assertFalse(policy.shouldRetry(500));
+        Assert.assertTrue(policy.shouldRetry(new IOException()));
+    }
+}
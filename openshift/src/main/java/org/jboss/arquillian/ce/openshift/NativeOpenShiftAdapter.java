@@ -23,12 +23,12 @@
 
 package org.jboss.arquillian.ce.openshift;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringWriter;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -38,7 +38,9 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import com.openshift.internal.restclient.capability.resources.OpenShiftBinaryPodLogRetrieval;
@@ -68,13 +70,17 @@ import com.openshift.restclient.model.project.IProjectRequest;
 import com.openshift.restclient.model.template.IParameter;
 import com.openshift.restclient.model.template.ITemplate;
 import org.jboss.arquillian.ce.adapter.AbstractOpenShiftAdapter;
+import org.jboss.arquillian.ce.adapter.PodLogCollector;
+import org.jboss.arquillian.ce.api.LogCollector;
 import org.jboss.arquillian.ce.api.MountSecret;
 import org.jboss.arquillian.ce.api.model.OpenShiftResource;
 import org.jboss.arquillian.ce.openshift.model.NativeDeploymentConfig;
 import org.jboss.arquillian.ce.portfwd.PortForwardContext;
 import org.jboss.arquillian.ce.proxy.Proxy;
 import org.jboss.arquillian.ce.resources.OpenShiftResourceHandle;
+import org.jboss.arquillian.ce.utils.Checker;
 import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.Containers;
 import org.jboss.arquillian.ce.utils.CustomValueExpressionResolver;
 import org.jboss.arquillian.ce.utils.HookType;
 import org.jboss.arquillian.ce.utils.Operator;
@@ -82,6 +88,7 @@ import org.jboss.arquillian.ce.utils.ParamValue;
 import org.jboss.arquillian.ce.utils.Port;
 import org.jboss.arquillian.ce.utils.RCContext;
 import org.jboss.dmr.ModelNode;
+import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.dmr.ValueExpression;
 import org.jboss.dmr.ValueExpressionResolver;
 
@@ -172,14 +179,14 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         return "NOT IMPLEMENTED"; // TODO
     }
 
-    public PortForwardContext createPortForwardContext(Map<String, String> labels, int port) {
+    public PortForwardContext createPortForwardContext(Map<String, String> labels, int... ports) {
         final List<IPod> pods = client.list(ResourceKind.POD, configuration.getNamespace(), labels);
         if (pods.isEmpty()) {
             throw new IllegalStateException("No such pods: " + labels);
         }
         IPod pod = pods.get(0);
         String nodeName = pod.getHost(); // TODO -- right value?
-        return new PortForwardContext(configuration.getKubernetesMaster(), nodeName, configuration.getNamespace(), pod.getName(), port);
+        return new PortForwardContext(configuration.getKubernetesMaster(), nodeName, configuration.getNamespace(), pod.getName(), ports);
     }
 
     public RegistryLookupEntry lookup() {
@@ -191,9 +198,13 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     private Object createProject() {
+        return createProject(configuration.getNamespace());
+    }
+
+    private Object createProject(String name) {
         // oc new-project <namespace>
         Properties properties = new Properties();
-        properties.put("PROJECT_NAME", configuration.getNamespace());
+        properties.put("PROJECT_NAME", name);
         IProjectRequest pr = createResource(Templates.PROJECT_REQUEST, properties);
         return client.create(pr);
     }
@@ -209,6 +220,75 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         return true;
     }
 
+    public void warmProject(final String name) throws Exception {
+        if (getResource(ResourceKind.PROJECT, name, "") == null) {
+            try {
+                createProject(name);
+            } catch (Exception e) {
+                // created meanwhile, e.g. by another fork's pool top-up?
+                if (getResource(ResourceKind.PROJECT, name, "") == null) {
+                    throw e;
+                }
+            }
+        }
+        Containers.delay(configuration.getStartupTimeout(), 1000L, new Checker() {
+            public boolean check() {
+                for (String sa : WARM_SERVICE_ACCOUNTS) {
+                    IResource account = getResource(ResourceKind.SERVICE_ACCOUNT, sa, name);
+                    if (account == null) {
+                        return false;
+                    }
+                    ModelNode secrets = ((KubernetesResource) account).getNode().get("secrets");
+                    if (secrets.isDefined() == false || secrets.asList().isEmpty()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public String toString() {
+                return String.format("WarmProject[%s]", name);
+            }
+        });
+    }
+
+    private IResource getResource(String kind, String name, String namespace) {
+        try {
+            return client.get(kind, name, namespace);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public void scrubProject(final String name) throws Exception {
+        // configs first, so they don't re-create what we delete next
+        String[][] stages = {
+            {ResourceKind.DEPLOYMENT_CONFIG, ResourceKind.BUILD_CONFIG},
+            {ResourceKind.REPLICATION_CONTROLLER, ResourceKind.BUILD, ResourceKind.SERVICE, ResourceKind.ROUTE, ResourceKind.IMAGE_STREAM,
+                ResourceKind.SECRET, ResourceKind.SERVICE_ACCOUNT, ResourceKind.ROLE_BINDING, ResourceKind.PVC},
+            {ResourceKind.POD}
+        };
+        for (String[] stage : stages) {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (final String kind : stage) {
+                tasks.add(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        List<IResource> resources = new ArrayList<>();
+                        for (IResource resource : client.<IResource>list(kind, name)) {
+                            if (isProjectDefault(kind, resource.getName(), resource.getAnnotations()) == false) {
+                                resources.add(resource);
+                            }
+                        }
+                        await(deleteAll(kind, resources));
+                        return null;
+                    }
+                });
+            }
+            await(fanOut(tasks));
+        }
+    }
+
     public void deletePod(String podName, long gracePeriodSeconds) {
         /* TODO, FIXME: Support gracePeriodSeconds parameter, just ignore it for now */
         client.delete(client.get(ResourceKind.POD, podName, configuration.getNamespace()));
@@ -297,7 +377,7 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         final IProject project = client.get(ResourceKind.PROJECT, configuration.getNamespace(), "");
 
         final ITemplate template;
-        try (InputStream stream = new URL(templateURL).openStream()) {
+        try (InputStream stream = new ByteArrayInputStream(getTemplate(templateURL))) {
             template = client.getResourceFactory().create(stream);
         }
        
@@ -338,13 +418,19 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     public Object deleteTemplate(String templateKey) throws Exception {
         Collection<IResource> resources = templates.get(templateKey);
         if (resources != null) {
-            for (IResource resource : resources) {
-                client.delete(resource);
-            }
+            await(deleteAll("Resource", resources));
         }
         return resources;
     }
 
+    public boolean supportsBinaryBuild() {
+        return false;
+    }
+
+    public String binaryBuild(String buildConfig, Map<String, String> labels, Archive<?> archive, String dir) throws Exception {
+        throw new UnsupportedOperationException("Binary build not supported -- use fabric8 adapter!");
+    }
+
     public OpenShiftResourceHandle createRoleBinding(String roleRefName, String userName) {
         Properties properties = new Properties();
         properties.setProperty("NAMESPACE", configuration.getNamespace());
@@ -420,6 +506,24 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
         return l.getLogs(false);
     }
 
+    // the log retrieval has no tail / since / timestamps options, so a dropped stream is not resumed
+    public LogCollector collectLogs(final Map<String, String> labels, int tailLines) throws Exception {
+        return new PodLogCollector(tailLines, configuration.getLogBufferLines()) {
+            protected Map<String, String> listPods() {
+                Map<String, String> pods = new HashMap<>();
+                for (IPod pod : client.<IPod>list(ResourceKind.POD, configuration.getNamespace(), labels)) {
+                    pods.put(pod.getName(), pod.getStatus());
+                }
+                return pods;
+            }
+
+            protected InputStream openLog(String podName, int tailLines, String sinceTime) {
+                IPod pod = client.get(ResourceKind.POD, podName, configuration.getNamespace());
+                return new OpenShiftBinaryPodLogRetrieval(pod, client).getLogs(true);
+            }
+        }.start();
+    }
+
     public String getLog(String prefix, Map<String, String> labels) throws Exception {
         String podName = getFirstResource(ResourceKind.POD, prefix, labels);
         return getLog(podName);
@@ -454,64 +558,68 @@ public class NativeOpenShiftAdapter extends AbstractOpenShiftAdapter {
     }
 
     public void cleanReplicationControllers(String... ids) throws Exception {
-        List<IReplicationController> rcs = client.list(ResourceKind.REPLICATION_CONTROLLER, configuration.getNamespace());
-        for (IReplicationController rc : rcs) {
-            for (String id : ids) {
-                if (rc.getName().equals(id)) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final String id : ids) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
                     try {
-                        client.delete(rc);
+                        client.delete(client.get(ResourceKind.REPLICATION_CONTROLLER, id, configuration.getNamespace()));
                         log.info(String.format("RC [%s] delete.", id));
                     } catch (Exception e) {
                         log.log(Level.WARNING, String.format("Exception while deleting RC [%s]: %s", id, e), e);
                     }
+                    return null;
                 }
-            }
+            });
         }
+        await(fanOut(tasks));
     }
 
     public void cleanPods(Map<String, String> labels) throws Exception {
-        final List<IPod> pods = client.list(ResourceKind.POD, configuration.getNamespace(), labels);
-        for (IPod pod : pods) {
-            try {
-                client.delete(pod);
-                log.info(String.format("Pod [%s] delete.", pod.getName()));
-            } catch (Exception e) {
-                log.log(Level.WARNING, String.format("Exception while deleting pod [%s]: %s", pod, e), e);
-            }
-        }
+        await(deleteAll("Pod", client.<IPod>list(ResourceKind.POD, configuration.getNamespace(), labels)));
     }
 
     @Override
-    public void cleanRemnants(Map<String, String> labels) throws Exception {
-        cleanBuilds(labels);
-        cleanReplicationControllers(labels);
-    }
-
-    private void cleanBuilds(Map<String, String> labels) {
-        final List<IBuild> builds = client.list(ResourceKind.BUILD, configuration.getNamespace(), labels);
-        for (IBuild build : builds) {
-            try {
-                client.delete(build);
-                log.info(String.format("Build [%s] delete.", build.getName()));
-            } catch (Exception e) {
-                log.log(Level.WARNING, String.format("Exception while deleting build [%s]: %s", build, e), e);
+    public void cleanRemnants(final Map<String, String> labels) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(new Callable<Void>() {
+            public Void call() throws Exception {
+                await(deleteAll("Build", client.<IBuild>list(ResourceKind.BUILD, configuration.getNamespace(), labels)));
+                return null;
             }
-        }
-    }
-
-    private void cleanReplicationControllers(Map<String, String> labels) {
-        final List<IReplicationController> rcs = client.list(ResourceKind.REPLICATION_CONTROLLER, configuration.getNamespace(), labels);
-        for (IReplicationController rc : rcs) {
-            try {
-                client.delete(rc);
-                log.info(String.format("ReplicationController [%s] delete.", rc.getName()));
-            } catch (Exception e) {
-                log.log(Level.WARNING, String.format("Exception while deleting rc [%s]: %s", rc, e), e);
+        });
+        tasks.add(new Callable<Void>() {
+            public Void call() throws Exception {
+                await(deleteAll("ReplicationController", client.<IReplicationController>list(ResourceKind.REPLICATION_CONTROLLER, configuration.getNamespace(), labels)));
+                return null;
             }
+        });
+        await(fanOut(tasks));
+    }
+
+    /**
+     * The native client has no collection delete, so delete each listed resource concurrently.
+     */
+    private Future<?> deleteAll(final String kind, Collection<? extends IResource> resources) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final IResource resource : resources) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    try {
+                        client.delete(resource);
+                        log.info(String.format("%s [%s] delete.", kind, resource.getName()));
+                    } catch (Exception e) {
+                        log.log(Level.WARNING, String.format("Exception while deleting %s [%s]: %s", kind, resource, e), e);
+                    }
+                    return null;
+                }
+            });
         }
+        return fanOut(tasks);
     }
 
     public void close() throws IOException {
+        super.close();
         templates.clear();
     }
 
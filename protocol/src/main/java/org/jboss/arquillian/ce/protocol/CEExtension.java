@@ -35,6 +35,7 @@ import org.kohsuke.MetaInfServices;
 public class CEExtension implements LoadableExtension {
     public void register(LoadableExtension.ExtensionBuilder builder) {
         builder.service(Protocol.class, CEServletProtocol.class);
+        builder.observer(ParallelReplicasObserver.class);
         // override url
         @SuppressWarnings("unchecked")
         Class<ResourceProvider> urpClass = (Class<ResourceProvider>) loadClass("org.jboss.arquillian.container.test.impl.enricher.resource.URLResourceProvider");
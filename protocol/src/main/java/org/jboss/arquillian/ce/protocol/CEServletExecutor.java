@@ -24,21 +24,39 @@
 package org.jboss.arquillian.ce.protocol;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jboss.arquillian.ce.api.ParallelReplicas;
 import org.jboss.arquillian.ce.proxy.Proxy;
 import org.jboss.arquillian.ce.runinpod.RunInPodUtils;
 import org.jboss.arquillian.ce.utils.Archives;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 import org.jboss.arquillian.ce.utils.DeploymentContext;
 import org.jboss.arquillian.ce.utils.Strings;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.HTTPContext;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.Servlet;
 import org.jboss.arquillian.container.test.api.OperateOnDeployment;
+import org.jboss.arquillian.container.test.api.RunAsClient;
 import org.jboss.arquillian.container.test.api.TargetsContainer;
+import org.jboss.arquillian.container.test.spi.command.Command;
 import org.jboss.arquillian.container.test.spi.command.CommandCallback;
 import org.jboss.arquillian.protocol.servlet.ServletMethodExecutor;
 import org.jboss.arquillian.test.spi.TestMethodExecutor;
@@ -50,6 +68,13 @@ import org.jboss.shrinkwrap.api.Archive;
  */
 public class CEServletExecutor extends ServletMethodExecutor {
     private static final Logger log = Logger.getLogger(CEServletExecutor.class.getName());
+    private static final int POLL_THREADS = 4;
+    // polls block on the pod, parallel replicas poll concurrently -- hence a small pool
+    private static final ScheduledExecutorService eventExecutor = Executors.newScheduledThreadPool(POLL_THREADS, new DaemonThreadFactory("ce-arq-command-poller"));
+    // commands can take long, keep them off the poll threads; at most one in flight per invocation
+    private static final ExecutorService callbackExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("ce-arq-command-callback"));
+    // per test class, methods already dispatched to replicas, waiting for the runner to ask for their result
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Method, Dispatched>> dispatched = new ConcurrentHashMap<>();
 
     private String contextRoot;
     private Map<String, String> labels;
@@ -83,6 +108,21 @@ public class CEServletExecutor extends ServletMethodExecutor {
         }
 
         Class<?> testClass = testMethodExecutor.getInstance().getClass();
+        Method method = testMethodExecutor.getMethod();
+
+        if (isParallel(testClass, method)) {
+            ConcurrentMap<Method, Dispatched> results = dispatched.get(testClass);
+            if (results == null) {
+                results = dispatchToReplicas(testClass);
+                dispatched.put(testClass, results);
+            }
+            Dispatched result = results.remove(method);
+            if (result != null) {
+                // the runner reached the method, its commands can now fire in its own test context
+                result.callback.bind(callback);
+                return await(result.result, testClass, method);
+            }
+        }
 
         String context;
         String podName;
@@ -94,23 +134,170 @@ public class CEServletExecutor extends ServletMethodExecutor {
             podName = locatePodName(testMethodExecutor);
         }
 
-        String url = proxy.url(podName, 8080, context + ARQUILLIAN_SERVLET_MAPPING, "outputMode=serializedObject&className=" + testClass.getName() + "&methodName=" + testMethodExecutor.getMethod().getName());
+        return invoke(testClass, method, context, podName, callback);
+    }
+
+    private TestResult invoke(Class<?> testClass, Method method, String context, String podName, CommandCallback callback) {
+        String url = proxy.url(podName, 8080, context + ARQUILLIAN_SERVLET_MAPPING, "outputMode=serializedObject&className=" + testClass.getName() + "&methodName=" + method.getName());
         log.info(String.format("Invoking test, url: %s", url));
-        String eventUrl = proxy.url(podName, 8080, context + ARQUILLIAN_SERVLET_MAPPING, "outputMode=serializedObject&className=" + testClass.getName() + "&methodName=" + testMethodExecutor.getMethod().getName() + "&cmd=event");
+        String eventUrl = proxy.url(podName, 8080, context + ARQUILLIAN_SERVLET_MAPPING, "outputMode=serializedObject&className=" + testClass.getName() + "&methodName=" + method.getName() + "&cmd=event");
 
-        Timer eventTimer = null;
+        ScheduledFuture<?> eventPoller = null;
         try {
-            eventTimer = createCommandServicePullTimer(eventUrl);
+            eventPoller = pollCommands(eventUrl, callback);
             return executeWithRetry(url, TestResult.class);
         } catch (Exception e) {
-            throw new IllegalStateException("Error launching test " + testClass.getName() + " " + testMethodExecutor.getMethod(), e);
+            throw new IllegalStateException("Error launching test " + testClass.getName() + " " + method, e);
+        } finally {
+            if (eventPoller != null) {
+                eventPoller.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Dispatch the parallel test methods the runner selected, round-robin over the ready pods,
+     * each pod running its share in order.
+     * A dispatched method's commands are held until the runner reaches that method and binds its callback.
+     *
+     * @return the dispatched results, empty if there is less than two ready pods, hence nothing to parallelize
+     */
+    private ConcurrentMap<Method, Dispatched> dispatchToReplicas(final Class<?> testClass) {
+        ConcurrentMap<Method, Dispatched> results = new ConcurrentHashMap<>();
+        List<String> pods = new ArrayList<>(proxy.getReadyPods(labels));
+        if (pods.size() < 2) {
+            return results;
+        }
+
+        List<Method> methods = new ArrayList<>();
+        for (Method m : TestSelection.fromSystemProperties().getTestMethods(testClass)) {
+            if (isParallel(testClass, m)) {
+                methods.add(m);
+            }
+        }
+
+        log.info(String.format("Dispatching %s test methods of %s across pods %s", methods.size(), testClass.getName(), pods));
+
+        List<ExecutorService> executors = new ArrayList<>();
+        for (int i = 0; i < pods.size(); i++) {
+            executors.add(Executors.newSingleThreadExecutor(new DaemonThreadFactory("ce-arq-replica-" + i)));
+        }
+        try {
+            for (int i = 0; i < methods.size(); i++) {
+                final Method m = methods.get(i);
+                final String podName = pods.get(i % pods.size());
+                final DeferredCallback deferred = new DeferredCallback();
+                Future<TestResult> result = executors.get(i % pods.size()).submit(new Callable<TestResult>() {
+                    public TestResult call() throws Exception {
+                        return invoke(testClass, m, contextRoot, podName, deferred);
+                    }
+                });
+                results.put(m, new Dispatched(result, deferred));
+            }
         } finally {
-            if (eventTimer != null) {
-                eventTimer.cancel();
+            for (ExecutorService executor : executors) {
+                executor.shutdown(); // let the queued methods finish
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Forget the class's dispatched methods, cancelling the ones the runner never asked for.
+     */
+    static void clear(Class<?> testClass) {
+        Map<Method, Dispatched> results = dispatched.remove(testClass);
+        if (results != null && results.isEmpty() == false) {
+            log.warning(String.format("Cancelling %s dispatched test methods of %s never run: %s", results.size(), testClass.getName(), results.keySet()));
+            for (Dispatched result : results.values()) {
+                result.result.cancel(true);
+                result.callback.bind(null);
             }
         }
     }
 
+    private static TestResult await(Future<TestResult> result, Class<?> testClass, Method method) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for test " + testClass.getName() + " " + method, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Error launching test " + testClass.getName() + " " + method, cause);
+        }
+    }
+
+    private static boolean isParallel(Class<?> testClass, Method method) {
+        if (testClass.isAnnotationPresent(ParallelReplicas.class) == false || TestSelection.hasAnnotation(testClass, "InSequence")) {
+            return false;
+        }
+        if (RunInPodUtils.isRunInPod(testClass, method) || TestSelection.hasAnnotation(method, "InSequence")) {
+            return false;
+        }
+        return method.isAnnotationPresent(TargetsContainer.class) == false
+            && method.isAnnotationPresent(OperateOnDeployment.class) == false
+            && method.isAnnotationPresent(RunAsClient.class) == false
+            && testClass.isAnnotationPresent(RunAsClient.class) == false;
+    }
+
+    /**
+     * Pull commands from the pod, on a shared scheduler -- instead of a new Timer thread per test method.
+     * A fired command is handled on the callback pool, and polling pauses until its result is sent back.
+     *
+     * @return the poller, or null if polling is disabled by a missing or non-positive pullInMilliSeconds
+     */
+    private ScheduledFuture<?> pollCommands(final String eventUrl, final CommandCallback callback) {
+        Integer interval = config.getPullInMilliSeconds();
+        if (interval == null || interval <= 0) {
+            log.warning("The Servlet Protocol has been configured with a pullInMilliSeconds interval of " + interval + ". The effect of this is that the Command Service has been disabled.");
+            return null;
+        }
+
+        final AtomicBoolean busy = new AtomicBoolean();
+        Runnable poll = new Runnable() {
+            public void run() {
+                if (busy.compareAndSet(false, true) == false) {
+                    return; // previous command still being handled
+                }
+                boolean handedOff = false;
+                try {
+                    Object o = execute(eventUrl, Object.class, null);
+                    if (o != null) {
+                        if (o instanceof Command) {
+                            final Command<?> command = (Command<?>) o;
+                            callbackExecutor.execute(new Runnable() {
+                                public void run() {
+                                    try {
+                                        callback.fired(command);
+                                        execute(eventUrl, Object.class, command);
+                                    } catch (Exception e) {
+                                        log.log(Level.WARNING, "Error handling command from " + eventUrl, e);
+                                    } finally {
+                                        busy.set(false);
+                                    }
+                                }
+                            });
+                            handedOff = true;
+                        } else {
+                            throw new RuntimeException("Received a non " + Command.class.getName() + " object on event channel");
+                        }
+                    }
+                } catch (Exception e) {
+                    log.log(Level.WARNING, "Error polling commands from " + eventUrl, e);
+                } finally {
+                    if (handedOff == false) {
+                        busy.set(false);
+                    }
+                }
+            }
+        };
+        return eventExecutor.scheduleWithFixedDelay(poll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
     protected <T> T execute(String url, Class<T> returnType, Object requestObject) throws Exception {
         return proxy.post(url, returnType, requestObject);
     }
@@ -146,4 +333,42 @@ public class CEServletExecutor extends ServletMethodExecutor {
         return proxy.findPod(labels, 0);
     }
 
+
+    private static class Dispatched {
+        private final Future<TestResult> result;
+        private final DeferredCallback callback;
+
+        private Dispatched(Future<TestResult> result, DeferredCallback callback) {
+            this.result = result;
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Holds a dispatched method's commands until the runner reaches the method and binds its invocation's callback.
+     * Bound to null, for a method never run, the commands are dropped.
+     */
+    private static class DeferredCallback implements CommandCallback {
+        private final CountDownLatch bound = new CountDownLatch(1);
+        private volatile CommandCallback delegate;
+
+        void bind(CommandCallback callback) {
+            delegate = callback;
+            bound.countDown();
+        }
+
+        public void fired(Command<?> event) {
+            try {
+                bound.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for the test method to be run: " + event, e);
+            }
+            if (delegate != null) {
+                delegate.fired(event);
+            } else {
+                log.warning(String.format("Dropping command %s of a test method never run.", event));
+            }
+        }
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The test methods of a class the runner is going to invoke, as far as we can tell from the client side:
+ * public @Test methods, inherited ones included, minus @Ignore, narrowed by Surefire's -Dtest=Class#method filter.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class TestSelection {
+    private final List<Pattern[]> filters = new ArrayList<>(); // class pattern, method patterns
+
+    /**
+     * @param filter the -Dtest filter, e.g. Foo#bar+baz,Other*; null or empty selects all
+     */
+    TestSelection(String filter) {
+        if (filter == null) {
+            return;
+        }
+        for (String entry : filter.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty() || entry.startsWith("!")) {
+                continue; // exclusions only remove methods the runner won't ask for anyway
+            }
+            int hash = entry.indexOf('#');
+            String classPart = (hash >= 0) ? entry.substring(0, hash) : entry;
+            String methodPart = (hash >= 0) ? entry.substring(hash + 1) : "";
+
+            if (classPart.endsWith(".java") || classPart.endsWith(".class")) {
+                classPart = classPart.substring(0, classPart.lastIndexOf('.'));
+            }
+            classPart = classPart.replace('/', '.');
+            if (classPart.isEmpty()) {
+                classPart = "*";
+            }
+
+            List<Pattern> methods = new ArrayList<>();
+            if (methodPart.isEmpty() == false) {
+                for (String method : methodPart.split("\\+")) {
+                    methods.add(glob(method.trim()));
+                }
+            }
+            methods.add(0, glob(classPart));
+            filters.add(methods.toArray(new Pattern[methods.size()]));
+        }
+    }
+
+    static TestSelection fromSystemProperties() {
+        return new TestSelection(System.getProperty("test"));
+    }
+
+    List<Method> getTestMethods(Class<?> testClass) {
+        List<Pattern> methodFilters = new ArrayList<>();
+        boolean classMatched = false;
+        for (Pattern[] filter : filters) {
+            if (matches(filter[0], testClass)) {
+                classMatched = true;
+                if (filter.length == 1) {
+                    methodFilters = null; // whole class
+                    break;
+                }
+                for (int i = 1; i < filter.length; i++) {
+                    methodFilters.add(filter[i]);
+                }
+            }
+        }
+        if (classMatched == false) {
+            methodFilters = null; // a filter we don't understand, the runner still picked this class
+        }
+
+        List<Method> methods = new ArrayList<>();
+        for (Method method : testClass.getMethods()) {
+            if (isTest(method) && selected(method, methodFilters)) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    // JUnit / TestNG are not on our classpath, match their annotations by simple name
+    static boolean isTest(Method method) {
+        return hasAnnotation(method, "Test") && hasAnnotation(method, "Ignore") == false && Modifier.isStatic(method.getModifiers()) == false;
+    }
+
+    static boolean hasAnnotation(AnnotatedElement element, String simpleName) {
+        for (Annotation annotation : element.getAnnotations()) {
+            if (annotation.annotationType().getSimpleName().equals(simpleName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean selected(Method method, List<Pattern> methodFilters) {
+        if (methodFilters == null) {
+            return true;
+        }
+        for (Pattern pattern : methodFilters) {
+            if (pattern.matcher(method.getName()).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(Pattern pattern, Class<?> testClass) {
+        return pattern.matcher(testClass.getName()).matches() || pattern.matcher(testClass.getSimpleName()).matches();
+    }
+
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        int star;
+        while ((star = glob.indexOf('*', start)) >= 0) {
+            regex.append(Pattern.quote(glob.substring(start, star))).append(".*");
+            start = star + 1;
+        }
+        regex.append(Pattern.quote(glob.substring(start)));
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.protocol;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TestSelectionTest {
+
+    @Test
+    public void testNoFilter() {
+        Assert.assertEquals(names("base", "one", "two", "three"), select(null));
+        Assert.assertEquals(names("base", "one", "two", "three"), select(""));
+    }
+
+    @Test
+    public void testMethodFilter() {
+        Assert.assertEquals(names("one"), select("Sample#one"));
+        Assert.assertEquals(names("one", "two"), select("Sample#one+two"));
+        Assert.assertEquals(names("two", "three"), select("Sample#t*"));
+        Assert.assertEquals(names("base"), select(Sample.class.getName() + "#base"));
+        Assert.assertEquals(names("one", "base"), select("Sample#one,Sample#base"));
+    }
+
+    @Test
+    public void testClassFilter() {
+        Assert.assertEquals(names("base", "one", "two", "three"), select("Sample"));
+        Assert.assertEquals(names("base", "one", "two", "three"), select("Sample#one,Sam*"));
+        Assert.assertEquals(names("one"), select("*Sample#one"));
+        Assert.assertEquals(names("one"), select("**/TestSelectionTest$Sample.java#one"));
+    }
+
+    @Test
+    public void testUnknownFilter() {
+        // the runner picked this class anyway, so run everything
+        Assert.assertEquals(names("base", "one", "two", "three"), select("Other#one"));
+        Assert.assertEquals(names("base", "one", "two", "three"), select("!Sample#one"));
+    }
+
+    private static Set<String> select(String filter) {
+        Set<String> names = new TreeSet<>();
+        for (Method method : new TestSelection(filter).getTestMethods(Sample.class)) {
+            names.add(method.getName());
+        }
+        return names;
+    }
+
+    private static Set<String> names(String... names) {
+        Set<String> set = new TreeSet<>();
+        for (String name : names) {
+            set.add(name);
+        }
+        return set;
+    }
+
+    public static class Base {
+        @Test
+        public void base() {
+        }
+    }
+
+    public static class Sample extends Base {
+        @Test
+        public void one() {
+        }
+
+        @Test
+        public void two() {
+        }
+
+        @Test
+        public void three() {
+        }
+
+        @Test
+        @Ignore
+        public void ignored() {
+        }
+
+        public void helper() {
+        }
+
+        @Test
+        void notPublic() {
+        }
+    }
+}
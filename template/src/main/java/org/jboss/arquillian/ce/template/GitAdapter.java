@@ -26,30 +26,59 @@ package org.jboss.arquillian.ce.template;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
 
 import org.eclipse.jgit.api.AddCommand;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.CommitCommand;
+import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.InitCommand;
 import org.eclipse.jgit.api.PullCommand;
 import org.eclipse.jgit.api.PushCommand;
+import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.util.FileUtils;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class GitAdapter implements Closeable {
+    private static final Logger log = Logger.getLogger(GitAdapter.class.getName());
+
+    // a mirror is used by one deployment at a time, in this JVM and across forked JVMs
+    private static final ConcurrentMap<String, Semaphore> mirrors = new ConcurrentHashMap<>();
 
     private final Git git;
     private final File dir;
+    private final MirrorLock lock;
     private CredentialsProvider credentials;
 
     private GitAdapter(Git git, File dir) throws IOException {
+        this(git, dir, null);
+    }
+
+    private GitAdapter(Git git, File dir, MirrorLock lock) throws IOException {
         this.git = git;
         this.dir = dir;
+        this.lock = lock;
+    }
+
+    public File getDir() {
+        return dir;
     }
 
     public GitAdapter setCredentials(CredentialsProvider credentials) {
@@ -58,11 +87,79 @@ public class GitAdapter implements Closeable {
     }
 
     public void close() throws IOException {
-        if (git != null) {
-            git.close();
+        try {
+            if (git != null) {
+                git.close();
+            }
+        } finally {
+            if (lock != null) {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Persistent local mirror of the repository, cloned only the first time.
+     * Call sync() to bring it up to date. Locked until closed.
+     */
+    public static GitAdapter openMirror(File mirrorsDir, String gitRepository) throws Exception {
+        String key = key(gitRepository);
+        File gitDir = new File(mirrorsDir, key);
+        MirrorLock lock = MirrorLock.acquire(key, new File(mirrorsDir, key + ".lock"));
+        try {
+            Git git;
+            if (new File(gitDir, Constants.DOT_GIT).exists()) {
+                log.info(String.format("Using Git mirror %s of %s", gitDir, gitRepository));
+                git = Git.open(gitDir);
+            } else {
+                log.info(String.format("Cloning %s into Git mirror %s", gitRepository, gitDir));
+                // clone aside and rename, so an interrupted clone never passes for a mirror
+                File tmpDir = new File(mirrorsDir, key + ".clone-" + System.nanoTime());
+                try {
+                    CloneCommand clone = Git.cloneRepository();
+                    clone.setDirectory(tmpDir);
+                    clone.setURI(gitRepository);
+                    clone.call().close();
+                    FileUtils.delete(gitDir, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING); // leftover of an old partial clone
+                    if (tmpDir.renameTo(gitDir) == false) {
+                        throw new IllegalStateException(String.format("Cannot rename %s to %s", tmpDir, gitDir));
+                    }
+                } finally {
+                    FileUtils.delete(tmpDir, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+                }
+                git = Git.open(gitDir);
+            }
+            return new GitAdapter(git, gitDir, lock);
+        } catch (Exception e) {
+            lock.release();
+            throw e;
         }
     }
 
+    /**
+     * Fetch, and reset the current branch to its remote state -- dropping anything left over from previous runs.
+     */
+    public GitAdapter sync() throws Exception {
+        FetchCommand fetch = git.fetch();
+        fetch.setRemote(Constants.DEFAULT_REMOTE_NAME);
+        fetch.setCredentialsProvider(credentials);
+        fetch.call();
+
+        String branch = git.getRepository().getBranch();
+        String remoteBranch = Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + branch;
+        if (git.getRepository().getRef(remoteBranch) != null) {
+            ResetCommand reset = git.reset();
+            reset.setMode(ResetCommand.ResetType.HARD);
+            reset.setRef(remoteBranch);
+            reset.call();
+        } else {
+            log.info(String.format("No remote branch %s yet -- empty repository?", remoteBranch)); // nothing to reset to
+        }
+
+        git.clean().setCleanDirectories(true).call();
+        return this;
+    }
+
     public static GitAdapter cloneRepository(File gitDir, String gitRepository) throws Exception {
         CloneCommand clone = Git.cloneRepository();
         clone.setDirectory(gitDir);
@@ -123,8 +220,81 @@ public class GitAdapter implements Closeable {
         PushCommand push = git.push();
         push.setRemote(remote);
         push.setCredentialsProvider(credentials);
-        push.call();
+        // thin pack -- new blobs can be sent as deltas against objects the remote already has, e.g. the previous archive
+        push.setThin(true);
+        for (PushResult result : push.call()) {
+            for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+                RemoteRefUpdate.Status status = update.getStatus();
+                if (status != RemoteRefUpdate.Status.OK && status != RemoteRefUpdate.Status.UP_TO_DATE) {
+                    throw new PushRejectedException(String.format("Push of %s rejected: %s", update.getRemoteName(), status));
+                }
+            }
+        }
         return this;
     }
 
+    private static String key(String gitRepository) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-1").digest(gitRepository.getBytes(StandardCharsets.UTF_8));
+        return String.format("%040x", new BigInteger(1, hash));
+    }
+
+    /**
+     * Someone else pushed in between, sync and retry.
+     */
+    public static class PushRejectedException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public PushRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static class MirrorLock {
+        private final Semaphore semaphore;
+        private final FileChannel channel;
+        private final FileLock fileLock;
+
+        private MirrorLock(Semaphore semaphore, FileChannel channel, FileLock fileLock) {
+            this.semaphore = semaphore;
+            this.channel = channel;
+            this.fileLock = fileLock;
+        }
+
+        static MirrorLock acquire(String key, File file) throws Exception {
+            Semaphore semaphore = mirrors.get(key);
+            if (semaphore == null) {
+                Semaphore previous = mirrors.putIfAbsent(key, semaphore = new Semaphore(1));
+                if (previous != null) {
+                    semaphore = previous;
+                }
+            }
+            semaphore.acquire();
+            try {
+                File parent = file.getParentFile();
+                if (parent.exists() == false && parent.mkdirs() == false) {
+                    throw new IllegalStateException("Cannot create dirs: " + parent);
+                }
+                FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+                try {
+                    return new MirrorLock(semaphore, channel, channel.lock());
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            } catch (Exception e) {
+                semaphore.release();
+                throw e;
+            }
+        }
+
+        void release() throws IOException {
+            try {
+                fileLock.release();
+                channel.close();
+            } finally {
+                semaphore.release();
+            }
+        }
+    }
+
 }
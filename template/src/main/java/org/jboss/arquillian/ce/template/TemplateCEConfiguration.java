@@ -39,6 +39,9 @@ public class TemplateCEConfiguration extends TemplateConfiguration implements Se
     private String gitCredentials = Strings.getSystemPropertyOrEnvVar("git.credentials");
     private String gitUsername = Strings.getSystemPropertyOrEnvVar("git.username");
     private String gitPassword = Strings.getSystemPropertyOrEnvVar("git.password");
+    private String gitMirrorDir = Strings.getSystemPropertyOrEnvVar("git.mirror.dir", System.getProperty("user.home") + "/.ce-arq/git");
+    private boolean binaryBuild = Boolean.parseBoolean(Strings.getSystemPropertyOrEnvVar("template.binary.build"));
+    private String binaryBuildConfig = Strings.getSystemPropertyOrEnvVar("template.binary.build.config");
 
     public boolean isNetRC() {
         return "netrc".equalsIgnoreCase(getGitCredentials());
@@ -84,4 +87,28 @@ public class TemplateCEConfiguration extends TemplateConfiguration implements Se
     public void setGitPassword(String gitPassword) {
         this.gitPassword = gitPassword;
     }
+
+    public String getGitMirrorDir() {
+        return gitMirrorDir;
+    }
+
+    public void setGitMirrorDir(String gitMirrorDir) {
+        this.gitMirrorDir = gitMirrorDir;
+    }
+
+    public boolean isBinaryBuild() {
+        return binaryBuild;
+    }
+
+    public void setBinaryBuild(boolean binaryBuild) {
+        this.binaryBuild = binaryBuild;
+    }
+
+    public String getBinaryBuildConfig() {
+        return binaryBuildConfig;
+    }
+
+    public void setBinaryBuildConfig(String binaryBuildConfig) {
+        this.binaryBuildConfig = binaryBuildConfig;
+    }
 }
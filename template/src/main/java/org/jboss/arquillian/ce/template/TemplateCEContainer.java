@@ -39,6 +39,7 @@ import java.util.Map;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.NetRCCredentialsProvider;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.jboss.arquillian.ce.adapter.OpenShiftAdapter;
 import org.jboss.arquillian.ce.api.Template;
 import org.jboss.arquillian.ce.runinpod.RunInPodContainer;
 import org.jboss.arquillian.ce.runinpod.RunInPodContext;
@@ -49,6 +50,7 @@ import org.jboss.arquillian.ce.utils.ReflectionUtils;
 import org.jboss.arquillian.ce.utils.StringResolver;
 import org.jboss.arquillian.ce.utils.Strings;
 import org.jboss.arquillian.container.spi.client.container.DeploymentException;
+import org.jboss.arquillian.container.spi.client.container.LifecycleException;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
@@ -57,12 +59,21 @@ import org.jboss.shrinkwrap.api.spec.WebArchive;
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class TemplateCEContainer extends AbstractCEContainer<TemplateCEConfiguration> {
+    private static final int PUSH_ATTEMPTS = 3;
+
     @Override
     protected RunInPodContainer create() {
         RunInPodContext context = new RunInPodContext(configuration, parallelHandler);
         return runInPodUtils.createContainer(context);
     }
 
+    @Override
+    protected void checkAdapter(OpenShiftAdapter adapter) throws LifecycleException {
+        if (configuration.isBinaryBuild() && adapter.supportsBinaryBuild() == false) {
+            throw new LifecycleException(String.format("Binary build [template.binary.build] is not supported by %s.", adapter.getClass().getSimpleName()));
+        }
+    }
+
     public Class<TemplateCEConfiguration> getConfigurationClass() {
         return TemplateCEConfiguration.class;
     }
@@ -76,9 +87,13 @@ public class TemplateCEContainer extends AbstractCEContainer<TemplateCEConfigura
         try {
             final String newArchiveName;
             boolean externalDeployment = Archives.isExternalDeployment(tc.get().getJavaClass());
+            boolean binaryBuild = externalDeployment == false && configuration.isBinaryBuild();
             if (externalDeployment) {
                 log.info("Ignoring Arquillian deployment ...");
                 newArchiveName = newName(archive);
+            } else if (binaryBuild) {
+                log.info("Using binary build, skipping Git ...");
+                newArchiveName = newName(archive);
             } else {
                 log.info(String.format("Using Git repository: %s, committing Arquillian deployment ...", configuration.getGitRepository(true)));
                 newArchiveName = commitDeployment(archive);
@@ -98,7 +113,7 @@ public class TemplateCEContainer extends AbstractCEContainer<TemplateCEConfigura
                 addParameterValues(values, System.getProperties(), true);
                 addParameterValues(values, readParameters(readTemplate(), configuration, resolver), false);
                 values.add(new ParamValue("REPLICAS", String.valueOf(replicas))); // not yet supported
-                if (externalDeployment == false || (configuration.getGitRepository(false) != null)) {
+                if ((externalDeployment == false && binaryBuild == false) || (configuration.getGitRepository(false) != null)) {
                     values.add(new ParamValue("SOURCE_REPOSITORY_URL", resolver.resolve(configuration.getGitRepository(true))));
                 }
 
@@ -109,6 +124,11 @@ public class TemplateCEContainer extends AbstractCEContainer<TemplateCEConfigura
                 log.info(String.format("Ignoring template [%s] processing ...", templateURL));
             }
 
+            if (binaryBuild) {
+                // the template's BuildConfig is expected to take binary input
+                client.binaryBuild(configuration.getBinaryBuildConfig(), labels, archive, "deployments");
+            }
+
             return getProtocolMetaData(proxy, labels, replicas);
         } catch (Throwable t) {
             throw new DeploymentException("Cannot deploy template: " + templateURL, t);
@@ -136,22 +156,31 @@ public class TemplateCEContainer extends AbstractCEContainer<TemplateCEConfigura
     protected String commitDeployment(Archive<?> archive) throws Exception {
         String name = newName(archive);
 
-        File dir = dockerAdapter.getDir(archive);
-        try (GitAdapter git = GitAdapter.cloneRepository(dir, configuration.getGitRepository(true)).prepare("deployments/" + name)) {
-            dockerAdapter.exportAsZip(new File(dir, "deployments"), archive, name);
+        CredentialsProvider cp;
+        if (configuration.isNetRC()) {
+            cp = new NetRCCredentialsProvider();
+        } else {
+            cp = new UsernamePasswordCredentialsProvider(configuration.getGitUsername(), configuration.getGitPassword());
+        }
 
-            CredentialsProvider cp;
-            if (configuration.isNetRC()) {
-                cp = new NetRCCredentialsProvider();
-            } else {
-                cp = new UsernamePasswordCredentialsProvider(configuration.getGitUsername(), configuration.getGitPassword());
+        File mirrors = new File(configuration.getGitMirrorDir());
+        try (GitAdapter git = GitAdapter.openMirror(mirrors, configuration.getGitRepository(true)).setCredentials(cp)) {
+            for (int attempt = 1; ; attempt++) {
+                git.sync().prepare("deployments/" + name);
+                dockerAdapter.exportAsZip(new File(git.getDir(), "deployments"), archive, name);
+                try {
+                    git
+                        .add("deployments")
+                        .commit()
+                        .push();
+                    break;
+                } catch (GitAdapter.PushRejectedException e) {
+                    if (attempt >= PUSH_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.info(String.format("%s, retrying ...", e.getMessage()));
+                }
             }
-
-            git
-                .setCredentials(cp)
-                .add("deployments")
-                .commit()
-                .push();
         }
 
         return name;
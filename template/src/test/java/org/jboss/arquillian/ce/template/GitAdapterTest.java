@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.template;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class GitAdapterTest {
+    private File root;
+    private File mirrors;
+    private String repository;
+
+    @Before
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("git-adapter").toFile();
+        mirrors = new File(root, "mirrors");
+        File bare = new File(root, "remote.git");
+        Git.init().setBare(true).setDirectory(bare).call().close();
+        repository = bare.toURI().toString();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.delete(root, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+    }
+
+    @Test
+    public void testEmptyRepository() throws Exception {
+        try (GitAdapter git = GitAdapter.openMirror(mirrors, repository)) {
+            git.sync(); // no remote branch to reset to
+            write(git, "deployments/test.war", "v1");
+            git.add("deployments").commit().push();
+        }
+        assertMirrorsClean();
+
+        try (GitAdapter git = GitAdapter.openMirror(mirrors, repository)) {
+            git.sync();
+            Assert.assertTrue(new File(git.getDir(), "deployments/test.war").exists());
+        }
+    }
+
+    @Test
+    public void testSyncDropsLeftovers() throws Exception {
+        try (GitAdapter git = GitAdapter.openMirror(mirrors, repository)) {
+            git.sync();
+            write(git, "deployments/test.war", "v1");
+            git.add("deployments").commit().push();
+        }
+
+        try (GitAdapter git = GitAdapter.openMirror(mirrors, repository)) {
+            write(git, "deployments/test.war", "local");
+            write(git, "deployments/other.war", "local");
+            git.add("deployments").commit(); // never pushed
+            git.sync();
+            Assert.assertEquals("v1", new String(Files.readAllBytes(new File(git.getDir(), "deployments/test.war").toPath()), StandardCharsets.UTF_8));
+            Assert.assertFalse(new File(git.getDir(), "deployments/other.war").exists());
+        }
+    }
+
+    @Test
+    public void testPartialMirrorIsReplaced() throws Exception {
+        File partial = null;
+        for (int i = 0; i < 2; i++) {
+            try (GitAdapter git = GitAdapter.openMirror(mirrors, repository)) {
+                if (partial == null) {
+                    partial = git.getDir();
+                }
+            }
+            if (i == 0) {
+                // an interrupted clone, before our rename, left a dir without .git
+                FileUtils.delete(partial, FileUtils.RECURSIVE);
+                Assert.assertTrue(new File(partial, "junk").mkdirs());
+            }
+        }
+        Assert.assertTrue(new File(partial, ".git").exists());
+        Assert.assertFalse(new File(partial, "junk").exists());
+        assertMirrorsClean();
+    }
+
+    private void assertMirrorsClean() {
+        for (String name : mirrors.list()) {
+            Assert.assertFalse(name, name.contains(".clone-"));
+        }
+    }
+
+    private static void write(GitAdapter git, String path, String content) throws Exception {
+        git.prepare(path);
+        try (OutputStream stream = new FileOutputStream(new File(git.getDir(), path))) {
+            stream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -23,30 +23,44 @@
 
 package org.jboss.arquillian.ce.adapter;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
+import org.jboss.arquillian.ce.api.MetricSampler;
 import org.jboss.arquillian.ce.proxy.Proxy;
+import org.jboss.arquillian.ce.proxy.ReadyPodsCondition;
 import org.jboss.arquillian.ce.resources.OpenShiftResourceHandle;
-import org.jboss.arquillian.ce.utils.Checker;
 import org.jboss.arquillian.ce.utils.Configuration;
-import org.jboss.arquillian.ce.utils.Containers;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 import org.jboss.arquillian.ce.utils.DeploymentContext;
 import org.jboss.arquillian.ce.utils.Operator;
 import org.jboss.arquillian.ce.utils.ReflectionUtils;
 import org.jboss.arquillian.container.spi.client.protocol.metadata.ProtocolMetaData;
 import org.jboss.arquillian.core.api.Instance;
+import org.jboss.shrinkwrap.api.Archive;
 import org.jolokia.client.request.J4pRequest;
 import org.jolokia.client.request.J4pResponse;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONAware;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -59,12 +73,39 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
     protected final Logger log = Logger.getLogger(getClass().getName());
 
     protected final Configuration configuration;
+    // accounts which get their secrets only once a new project is set up
+    protected static final String[] WARM_SERVICE_ACCOUNTS = {"default", "builder", "deployer"};
+    // role bindings every new project comes with
+    private static final String[] PROJECT_ROLE_BINDINGS = {"admin", "system:deployers", "system:image-builders", "system:image-pullers"};
+    private static final String SERVICE_ACCOUNT_ANNOTATION = "kubernetes.io/service-account.name";
+
+    // unbounded, as fan-out tasks wait on their sub-tasks from within the pool
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("ce-arq-adapter"));
+
+    private final TemplateCache templateCache;
     private Map<String, List<OpenShiftResourceHandle>> resourcesMap = new ConcurrentHashMap<>();
     private Proxy proxy;
     private Instance<ProtocolMetaData> pmdInstance;
 
     protected AbstractOpenShiftAdapter(Configuration configuration) {
         this.configuration = configuration;
+        this.templateCache = new TemplateCache(new File(configuration.getTemplateCacheDir()));
+    }
+
+    /**
+     * Template content, fetched at most once per JVM.
+     */
+    protected byte[] getTemplate(String templateURL) throws IOException {
+        return templateCache.get(templateURL);
+    }
+
+    /**
+     * Writes the binary build input -- a tar holding the exported archive in the given dir -- and closes the output.
+     */
+    protected static void writeBinaryInput(Archive<?> archive, String dir, OutputStream output) throws IOException {
+        try (TarStream tar = new TarStream(output)) {
+            tar.add(dir + "/" + archive.getName(), archive);
+        }
     }
 
     public void setProtocolMetaData(Instance<ProtocolMetaData> pmd) {
@@ -102,7 +143,13 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
         return proxy;
     }
 
-    private void addResourceHandle(String resourcesKey, OpenShiftResourceHandle handle) {
+    public synchronized void close() throws IOException {
+        if (proxy != null) {
+            proxy.close();
+        }
+    }
+
+    private synchronized void addResourceHandle(String resourcesKey, OpenShiftResourceHandle handle) {
         List<OpenShiftResourceHandle> list = resourcesMap.get(resourcesKey);
         if (list == null) {
             list = new ArrayList<>();
@@ -122,13 +169,87 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
     public Object deleteResources(String resourcesKey) {
         List<OpenShiftResourceHandle> list = resourcesMap.remove(resourcesKey);
         if (list != null) {
-            for (OpenShiftResourceHandle resource : list) {
-                resource.delete();
+            try {
+                await(deleteHandles(list));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
             }
         }
         return list;
     }
 
+    public Future<?> deleteResourcesAsync(String resourcesKey) {
+        List<OpenShiftResourceHandle> list = resourcesMap.remove(resourcesKey);
+        return deleteHandles(list != null ? list : Collections.<OpenShiftResourceHandle>emptyList());
+    }
+
+    private Future<?> deleteHandles(List<OpenShiftResourceHandle> handles) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final OpenShiftResourceHandle handle : handles) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    handle.delete();
+                    return null;
+                }
+            });
+        }
+        return fanOut(tasks);
+    }
+
+    public Future<?> cleanupAsync(final Map<String, String> labels, final String... rcNames) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                // RCs first, so they don't re-create the pods we delete
+                cleanReplicationControllers(rcNames);
+                cleanPods(labels);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Runs the tasks concurrently on the shared cleanup pool.
+     * The returned future completes once all tasks did, failing with the first error.
+     */
+    protected static Future<?> fanOut(final List<Callable<Void>> tasks) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    await(future);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Does a new project come with it -- a built-in service account, its secrets, or a default role binding?
+     * A project scrub keeps these.
+     */
+    protected static boolean isProjectDefault(String kind, String name, Map<String, String> annotations) {
+        switch (kind) {
+            case "ServiceAccount":
+                return Arrays.asList(WARM_SERVICE_ACCOUNTS).contains(name);
+            case "Secret":
+                return annotations != null && Arrays.asList(WARM_SERVICE_ACCOUNTS).contains(annotations.get(SERVICE_ACCOUNT_ANNOTATION));
+            case "RoleBinding":
+                return Arrays.asList(PROJECT_ROLE_BINDINGS).contains(name);
+            default:
+                return false;
+        }
+    }
+
+    protected static void await(Future<?> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
     protected abstract OpenShiftResourceHandle createRoleBinding(String roleRefName, String userName);
 
     public Object addRoleBinding(String resourcesKey, String roleRefName, String userName) {
@@ -141,7 +262,7 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
 
     public void waitForReadyPods(String prefix, int replicas) throws Exception {
         final Map<String, String> labels = getLabels(prefix);
-        Containers.delay(configuration.getStartupTimeout(), 4000L, new PodCountChecker(labels, Operator.EQUAL, replicas));
+        getProxy().awaitReadyPods(labels, new PodCountCondition(labels, Operator.EQUAL, replicas));
     }
 
     public void replacePods(String prefix, int size, final int replicas) throws Exception {
@@ -157,10 +278,9 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
             size--;
         }
 
-        Containers.delay(configuration.getStartupTimeout(), 4000L, new PodCountChecker(labels, Operator.EQUAL, replicas) {
+        getProxy().awaitReadyPods(labels, new PodCountCondition(labels, Operator.EQUAL, replicas) {
             @Override
-            protected Set<String> getReadyPods() {
-                Set<String> pods = super.getReadyPods();
+            protected Set<String> filter(Set<String> pods) {
                 pods.removeAll(deleted);
                 return pods;
             }
@@ -176,7 +296,7 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
     }
 
     public void delay(final Map<String, String> labels, final int replicas, final Operator op) throws Exception {
-        Containers.delay(configuration.getStartupTimeout(), 4000L, new PodCountChecker(labels, op, replicas));
+        getProxy().awaitReadyPods(labels, new PodCountCondition(labels, op, replicas));
     }
 
 
@@ -185,57 +305,150 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
             throw new IllegalArgumentException("Input must be a J4pRequest instance!");
         }
 
-        Proxy proxy = getProxy();
+        J4pRequest request = (J4pRequest) input;
+        Object parseResult = post(podName, toJson(request));
+        if (parseResult instanceof JSONObject == false) {
+            throw new IllegalStateException("Invalid JSON answer for a single request (expected a map but got a " + parseResult.getClass() + ")");
+        }
+        return expectedReturnType.cast(toResponse(request, (JSONObject) parseResult).getValue());
+    }
 
-        String url = proxy.url(podName, "https", 8778, "/jolokia/", null);
-        log.info(String.format("Jolokia URL: %s", url));
+    public List<Object> jolokia(String podName, List<?> input) throws Exception {
+        List<J4pRequest> requests = toRequests(input);
+        return bulk(podName, requests, toJson(requests), false);
+    }
 
-        J4pRequest request = (J4pRequest) input;
-        JSONObject jsonObject = ReflectionUtils.invoke(J4pRequest.class, "toJson", new Class[0], request, new Object[0], JSONObject.class);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (OutputStreamWriter out = new OutputStreamWriter(baos)) {
-            jsonObject.writeJSONString(out);
-            out.flush();
-        }
-
-        byte[] bytes = baos.toByteArray(); // copy
-        baos.reset(); // re-use
-        try (InputStream stream = proxy.post(url, "application/json", bytes)) {
-            byte[] buffer = new byte[512];
-            int numRead;
-            while ((numRead = stream.read(buffer, 0, buffer.length)) >= 0) {
-                baos.write(buffer, 0, numRead);
+    public Map<String, List<Object>> jolokiaAll(String prefix, List<?> input) throws Exception {
+        final List<J4pRequest> requests = toRequests(input);
+        final JSONArray json = toJson(requests); // shared, only read
+        final Map<String, List<Object>> results = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final String pod : getReadyPods(prefix)) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    results.put(pod, bulk(pod, requests, json, false));
+                    return null;
+                }
+            });
+        }
+        await(fanOut(tasks));
+        return new TreeMap<>(results);
+    }
+
+    /**
+     * Bulk request on all ready pods, for sampling: a failed request's value is null,
+     * and a pod which cannot be queried is left out.
+     *
+     * @param failures collects the error per left out pod
+     */
+    Map<String, List<Object>> jolokiaSample(String prefix, List<?> input, final Map<String, Exception> failures) throws Exception {
+        final List<J4pRequest> requests = toRequests(input);
+        final JSONArray json = toJson(requests);
+        final Map<String, List<Object>> results = new ConcurrentHashMap<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (final String pod : getReadyPods(prefix)) {
+            tasks.add(new Callable<Void>() {
+                public Void call() throws Exception {
+                    try {
+                        results.put(pod, bulk(pod, requests, json, true));
+                    } catch (Exception e) {
+                        failures.put(pod, e);
+                    }
+                    return null;
+                }
+            });
+        }
+        await(fanOut(tasks));
+        return new TreeMap<>(results);
+    }
+
+    public MetricSampler sample(String prefix, long period, Map<String, ?> input) throws Exception {
+        String dir = configuration.getJolokiaSampleDir();
+        return new JolokiaSampler(this, prefix, input, configuration.getJolokiaSampleCapacity(), dir != null ? new File(dir) : null).start(period);
+    }
+
+    /**
+     * @param lenient a failed request yields null, instead of failing the whole bulk
+     */
+    private List<Object> bulk(String podName, List<J4pRequest> requests, JSONArray json, boolean lenient) throws Exception {
+        Object parseResult = post(podName, json);
+        if (parseResult instanceof JSONArray == false || ((JSONArray) parseResult).size() != requests.size()) {
+            throw new IllegalStateException(String.format("Invalid JSON answer for a bulk request of %s (expected an array of the same size)", requests.size()));
+        }
+
+        JSONArray responses = (JSONArray) parseResult;
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            JSONObject response = (JSONObject) responses.get(i);
+            Object status = response.get("status");
+            if (status instanceof Number && ((Number) status).intValue() != 200) {
+                if (lenient) {
+                    values.add(null);
+                    continue;
+                }
+                throw new IllegalStateException(String.format("Jolokia request #%s on %s failed: %s", i, podName, response.get("error")));
             }
+            values.add(toResponse(requests.get(i), response).getValue());
         }
-        String content = baos.toString();
+        return values;
+    }
 
-        JSONParser parser = new JSONParser();
-        JSONAware parseResult;
-        try {
-            parseResult = (JSONAware) parser.parse(content);
+    // one round trip; the response is parsed as it's read
+    private Object post(String podName, JSONAware json) throws Exception {
+        Proxy proxy = getProxy();
+
+        String url = proxy.url(podName, "https", 8778, "/jolokia/", null);
+        log.fine(String.format("Jolokia URL: %s", url));
+
+        byte[] bytes = json.toJSONString().getBytes(StandardCharsets.UTF_8);
+        try (Reader reader = new InputStreamReader(proxy.post(url, "application/json", bytes), StandardCharsets.UTF_8)) {
+            return new JSONParser().parse(reader);
         } catch (ParseException e) {
-            throw new IllegalArgumentException("Invalid Jolokia response: " + content);
+            throw new IllegalArgumentException("Invalid Jolokia response: " + e);
         }
-        if (parseResult instanceof JSONObject == false) {
-            throw new IllegalStateException("Invalid JSON answer for a single request (expected a map but got a " + parseResult.getClass() + ")");
+    }
+
+    private static List<J4pRequest> toRequests(List<?> input) {
+        List<J4pRequest> requests = new ArrayList<>();
+        for (Object request : input) {
+            if (request instanceof J4pRequest == false) {
+                throw new IllegalArgumentException("Input must be J4pRequest instances: " + request);
+            }
+            requests.add((J4pRequest) request);
+        }
+        return requests;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray toJson(List<J4pRequest> requests) {
+        JSONArray array = new JSONArray();
+        for (J4pRequest request : requests) {
+            array.add(toJson(request));
         }
-        J4pResponse response = ReflectionUtils.invoke(J4pRequest.class, "createResponse", new Class[]{JSONObject.class}, request, new Object[]{parseResult}, J4pResponse.class);
-        return expectedReturnType.cast(response.getValue());
+        return array;
+    }
+
+    private static JSONObject toJson(J4pRequest request) {
+        return ReflectionUtils.invoke(J4pRequest.class, "toJson", new Class[0], request, new Object[0], JSONObject.class);
+    }
+
+    private static J4pResponse toResponse(J4pRequest request, JSONObject json) {
+        return ReflectionUtils.invoke(J4pRequest.class, "createResponse", new Class[]{JSONObject.class}, request, new Object[]{json}, J4pResponse.class);
     }
 
-    private class PodCountChecker implements Checker {
+    private class PodCountCondition implements ReadyPodsCondition {
         private final Map<String, String> labels;
         private final Operator op;
         private final int replicas;
 
-        public PodCountChecker(Map<String, String> labels, Operator op, int replicas) {
+        public PodCountCondition(Map<String, String> labels, Operator op, int replicas) {
             this.labels = labels;
             this.op = op;
             this.replicas = replicas;
         }
 
-        public boolean check() {
-            Set<String> pods = getReadyPods();
+        public boolean check(Set<String> pods) {
+            pods = filter(pods);
             boolean result = op.op(pods.size(), replicas);
             if (result) {
                 log.info(String.format("Condition satisfied: number of pod(s) matching labels: %s is %s %s (pods: %s)", labels, op, replicas, pods));
@@ -243,8 +456,8 @@ public abstract class AbstractOpenShiftAdapter implements OpenShiftAdapter {
             return result;
         }
 
-        protected Set<String> getReadyPods() {
-            return getProxy().getReadyPods(labels);
+        protected Set<String> filter(Set<String> pods) {
+            return pods;
         }
 
         @Override
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.api.asset.Asset;
+
+/**
+ * SHA-256 over archive content -- entry names and bytes, not the exported ZIP,
+ * whose entry timestamps would differ on every export.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ArchiveDigest {
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[8192];
+
+    private ArchiveDigest() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String digest(Archive<?> archive, String... extras) throws IOException {
+        ArchiveDigest ad = new ArchiveDigest();
+        ad.updateValues(extras);
+        ad.updateArchive(archive);
+        return ad.toHex();
+    }
+
+    static String digest(Map<String, Asset> assets, String... extras) throws IOException {
+        ArchiveDigest ad = new ArchiveDigest();
+        ad.updateValues(extras);
+        ad.updateAssets(new TreeMap<>(assets));
+        return ad.toHex();
+    }
+
+    private void updateValues(String... values) throws IOException {
+        for (String value : values) {
+            digest.update(String.valueOf(value).getBytes("UTF-8"));
+            digest.update((byte) 0);
+        }
+    }
+
+    private void updateArchive(Archive<?> archive) throws IOException {
+        Map<String, Asset> assets = new TreeMap<>();
+        for (Map.Entry<ArchivePath, Node> entry : archive.getContent().entrySet()) {
+            Asset asset = entry.getValue().getAsset();
+            if (asset != null) {
+                assets.put(entry.getKey().get(), asset);
+            }
+        }
+        updateAssets(assets);
+    }
+
+    private void updateAssets(Map<String, Asset> assets) throws IOException {
+        for (Map.Entry<String, Asset> entry : assets.entrySet()) {
+            updateValues(entry.getKey());
+            Asset asset = entry.getValue();
+            if (asset instanceof ArchiveAsset) {
+                updateArchive(((ArchiveAsset) asset).getArchive()); // nested archive, e.g. a library
+            } else {
+                try (InputStream stream = asset.openStream()) {
+                    int read;
+                    while ((read = stream.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        }
+    }
+
+    private String toHex() {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+
+/**
+ * Splits a web archive into a stable library layer (WEB-INF/lib jars) and a thin application layer.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ArchiveLayers {
+    private static final String LIB_PREFIX = "/WEB-INF/lib/";
+
+    private final Map<String, Asset> libs = new TreeMap<>();
+    private final Map<String, Asset> application = new TreeMap<>();
+
+    private ArchiveLayers() {
+    }
+
+    /**
+     * @return layers, or null if there is nothing to split -- not a .war, or no libraries
+     */
+    static ArchiveLayers split(Archive<?> archive) {
+        if (archive.getName().endsWith(".war") == false) {
+            return null;
+        }
+
+        ArchiveLayers layers = new ArchiveLayers();
+        for (Map.Entry<ArchivePath, Node> entry : archive.getContent().entrySet()) {
+            Asset asset = entry.getValue().getAsset();
+            if (asset == null) {
+                continue; // directory
+            }
+            String path = entry.getKey().get();
+            if (path.startsWith(LIB_PREFIX)) {
+                layers.libs.put(path.substring(LIB_PREFIX.length()), asset);
+            } else {
+                layers.application.put(path, asset);
+            }
+        }
+        return layers.libs.isEmpty() ? null : layers;
+    }
+
+    /**
+     * Digest libraries' names and content, plus any extra values the base layer depends on.
+     */
+    String hash(String... extras) throws IOException {
+        return ArchiveDigest.digest(libs, extras);
+    }
+
+    void writeLibraries(TarStream tar, String dir) throws IOException {
+        write(libs, tar, dir);
+    }
+
+    void writeApplication(TarStream tar, String dir) throws IOException {
+        write(application, tar, dir);
+    }
+
+    private static void write(Map<String, Asset> assets, TarStream tar, String dir) throws IOException {
+        for (Map.Entry<String, Asset> entry : assets.entrySet()) {
+            String path = entry.getKey();
+            tar.add(dir + (path.startsWith("/") ? path : "/" + path), entry.getValue());
+        }
+    }
+}
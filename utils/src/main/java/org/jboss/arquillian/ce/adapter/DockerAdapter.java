@@ -46,4 +46,9 @@ public interface DockerAdapter extends Closeable {
     String buildAndPushImage(DockerAdapterContext context) throws IOException;
 
     void removeImage(String imageId);
+
+    /**
+     * @return metrics of the archive's last image push, or null if it wasn't pushed (e.g. re-used)
+     */
+    PushMetrics getPushMetrics(Archive<?> archive);
 }
@@ -23,19 +23,24 @@
 
 package org.jboss.arquillian.ce.adapter;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import com.github.dockerjava.api.DockerClient;
@@ -50,6 +55,7 @@ import com.github.dockerjava.core.DockerClientConfig;
 import com.github.dockerjava.core.command.BuildImageResultCallback;
 import com.github.dockerjava.core.command.PushImageResultCallback;
 import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 import org.jboss.arquillian.ce.utils.DockerFileTemplateHandler;
 import org.jboss.arquillian.ce.utils.RegistryLookup;
 import org.jboss.arquillian.ce.utils.StringResolver;
@@ -64,6 +70,9 @@ import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 public class DockerAdapterImpl implements DockerAdapter {
     private final static Logger log = Logger.getLogger(DockerAdapterImpl.class.getName());
     private static final File tmpDir;
+    private static final int PIPE_SIZE = 256 * 1024;
+    private static final ExecutorService contextWriter = Executors.newCachedThreadPool(new DaemonThreadFactory("ce-arq-build-context"));
+    private static ExecutorService pushExecutor; // shared by all adapters, bounded by the first one's configuration
 
     static {
         tmpDir = getTempRoot();
@@ -72,9 +81,12 @@ public class DockerAdapterImpl implements DockerAdapter {
     private final Configuration configuration;
     private final RegistryLookup lookup;
     private final DockerClient dockerClient;
+    private final ImageIndex index;
+    private final ImageRegistry registry;
 
     private Map<String, File> dirs = new ConcurrentHashMap<>();
     private Map<String, String> images = new ConcurrentHashMap<>();
+    private Map<String, PushMetrics> pushMetrics = new ConcurrentHashMap<>();
 
     protected static File getTempRoot() {
         return AccessController.doPrivileged(new PrivilegedAction<File>() {
@@ -103,6 +115,8 @@ public class DockerAdapterImpl implements DockerAdapter {
         this.configuration = configuration;
         this.lookup = lookup;
         this.dockerClient = createDockerClient(configuration);
+        this.index = new ImageIndex(new File(configuration.getImageIndex()));
+        this.registry = new ImageRegistry(configuration);
     }
 
     public void close() throws IOException {
@@ -111,20 +125,23 @@ public class DockerAdapterImpl implements DockerAdapter {
         }
     }
 
-    public File getDir(Archive<?> archive) {
+    /**
+     * Temp dir is only created on demand -- image builds stream their context, they don't need one.
+     */
+    public synchronized File getDir(Archive<?> archive) {
         File dir = dirs.get(archive.getName());
         if (dir == null) {
-            throw new IllegalArgumentException(String.format("Missing temp dir for archive %s", archive.getName()));
+            dir = new File(tmpDir, "ce_" + UUID.randomUUID().toString());
+            if (dir.mkdirs() == false) {
+                throw new IllegalStateException("Cannot create dir: " + dir);
+            }
+            dirs.put(archive.getName(), dir);
         }
         return dir;
     }
 
     public void prepare(Archive<?> archive) {
-        File dir = new File(tmpDir, "ce_" + UUID.randomUUID().toString());
-        if (dir.mkdirs() == false) {
-            throw new IllegalStateException("Cannot create dir: " + dir);
-        }
-        dirs.put(archive.getName(), dir);
+        dirs.remove(archive.getName()); // fresh dir, if needed
     }
 
     public void reset(Archive<?> archive) {
@@ -142,8 +159,11 @@ public class DockerAdapterImpl implements DockerAdapter {
                 }
             }
         } finally {
-            File dir = getDir(archive);
-            delete(dir);
+            pushMetrics.remove(archive.getName());
+            File dir = dirs.remove(archive.getName());
+            if (dir != null) {
+                delete(dir);
+            }
         }
     }
 
@@ -183,25 +203,13 @@ public class DockerAdapterImpl implements DockerAdapter {
 
         final String deploymentName = deployment.getName();
         properties.put("deployment.name", deploymentName);
+        pushMetrics.remove(deploymentName); // a previous build's
 
         // apply custom DockerFile changes
         if (dth != null) {
             dth.apply(baos);
         }
 
-        final File dir = getDir(deployment);
-
-        final StringResolver resolver = Strings.createStringResolver(properties);
-        String df = resolver.resolve(baos.toString());
-        log.info(String.format("Docker file:\n---\n%s---", df));
-        ByteArrayInputStream bais = new ByteArrayInputStream(df.getBytes());
-        try (FileOutputStream fos = new FileOutputStream(new File(dir, "Dockerfile"))) {
-            copy(bais, fos);
-        }
-
-        // Export test deployment to Docker dir
-        exportAsZip(dir, deployment);
-
         // Grab Docker registry service
         RegistryLookup.RegistryLookupEntry rle = lookup.lookup();
 
@@ -223,28 +231,53 @@ public class DockerAdapterImpl implements DockerAdapter {
             throw new IllegalArgumentException("Missing Docker url / host!");
         }
 
-        final Timer timer = new Timer();
-
-        // Build image on your Docker host
-        try (BuildImageCmd buildImageCmd = dockerClient.buildImageCmd(dir)) {
-            timer.reset();
-            String imageId = buildImageCmd.withTag(imageName).exec(new PrintBuildImageResultCallback()).awaitImageId();
-            log.info(String.format("Built image: %s [%s].", imageId, timer));
+        // Split libraries into their own, re-usable, base image
+        final ArchiveLayers layers = configuration.isLayeredBuild() ? ArchiveLayers.split(deployment) : null;
+        final String deploymentDir = properties.getProperty("deployment.dir");
+        if (layers != null) {
+            properties.put("from.name", buildBaseImage(layers, imageName, properties));
+            properties.put("deployment.dir", appendPath(deploymentDir, deploymentName));
         }
 
-        final String imageTag = configuration.getImageTag();
+        final StringResolver resolver = Strings.createStringResolver(properties);
+        String df = resolver.resolve(baos.toString());
+        if (layers != null) {
+            // exploded deployment, hence the marker
+            df += String.format("%nADD %s.dodeploy %s%n", deploymentName, deploymentDir);
+        }
+        log.info(String.format("Docker file:\n---\n%s---", df));
 
-        // Push image to Docker registry service
-        log.info(String.format("Pushing image %s with tag %s ...", imageName, imageTag));
-        try (PushImageCmd pushImageCmd = dockerClient.pushImageCmd(imageName)) {
-            if (imageTag != null) {
-                pushImageCmd.withTag(imageTag);
+        // Same Dockerfile and content, same image -- re-use it, if the registry still has it
+        final String digest = configuration.isImageReuse() ? ArchiveDigest.digest(deployment, df) : null;
+        if (digest != null) {
+            String existing = findImage(imageName, digest, rle.getScheme());
+            if (existing != null) {
+                log.info(String.format("Re-using image %s, content digest %s.", existing, digest));
+                images.put(deploymentName, existing);
+                return existing;
             }
-            timer.reset();
-            pushImageCmd.exec(new PrintPushImageResultCallback()).awaitSuccess();
-            log.info(String.format("Pushed image %s with tag %s [%s].", imageName, imageTag, timer));
         }
 
+        final String dockerfile = df;
+
+        // Build image on your Docker host, streaming Dockerfile and test deployment as build context
+        buildImage(new BuildContext() {
+            public void writeTo(TarStream tar) throws IOException {
+                tar.add("Dockerfile", dockerfile);
+                if (layers != null) {
+                    layers.writeApplication(tar, deploymentName);
+                    tar.add(deploymentName + ".dodeploy", "");
+                } else {
+                    tar.add(deploymentName, deployment); // streamed, not buffered in memory
+                }
+            }
+        }, imageName);
+
+        final String imageTag = (digest != null) ? digest : configuration.getImageTag();
+
+        // Push image to Docker registry service
+        pushMetrics.put(deploymentName, pushImage(imageName, imageTag));
+
         StringBuilder fullImageName = new StringBuilder(imageName);
         if (imageTag != null) {
             fullImageName.append(":").append(imageTag);
@@ -252,10 +285,149 @@ public class DockerAdapterImpl implements DockerAdapter {
         String result = fullImageName.toString();
 
         images.put(deploymentName, result); // remember which images we built
+        if (digest != null) {
+            index.put(digest, result);
+        }
 
         return result;
     }
 
+    /**
+     * Push on the shared, bounded, push executor -- pushes of concurrent deployments overlap, up to the limit.
+     */
+    private PushMetrics pushImage(final String imageName, final String imageTag) throws IOException {
+        Future<PushMetrics> push = getPushExecutor(configuration.getPushConcurrency()).submit(new Callable<PushMetrics>() {
+            public PushMetrics call() throws Exception {
+                log.info(String.format("Pushing image %s with tag %s ...", imageName, imageTag));
+                PushMetrics metrics = new PushMetrics(imageTag != null ? imageName + ":" + imageTag : imageName);
+                try (PushImageCmd pushImageCmd = dockerClient.pushImageCmd(imageName)) {
+                    if (imageTag != null) {
+                        pushImageCmd.withTag(imageTag);
+                    }
+                    pushImageCmd.exec(new PrintPushImageResultCallback(metrics)).awaitSuccess();
+                }
+                metrics.finish();
+                return metrics;
+            }
+        });
+
+        try {
+            return push.get();
+        } catch (InterruptedException e) {
+            push.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted pushing image " + imageName, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Error pushing image " + imageName, cause);
+        }
+    }
+
+    private static synchronized ExecutorService getPushExecutor(int concurrency) {
+        if (pushExecutor == null) {
+            pushExecutor = Executors.newFixedThreadPool(Math.max(1, concurrency), new DaemonThreadFactory("ce-arq-image-push"));
+        }
+        return pushExecutor;
+    }
+
+    public PushMetrics getPushMetrics(Archive<?> archive) {
+        return pushMetrics.get(archive.getName());
+    }
+
+    private String findImage(String imageName, String digest, String scheme) {
+        String indexed = index.get(digest);
+        if (indexed != null) {
+            if (registry.hasManifest(indexed, scheme)) {
+                return indexed;
+            }
+            index.remove(digest); // stale
+        }
+
+        String tagged = imageName + ":" + digest;
+        if (registry.hasManifest(tagged, scheme)) {
+            index.put(digest, tagged);
+            return tagged;
+        }
+        return null;
+    }
+
+    /**
+     * Build the libraries' base image, unless the Docker host already has one for the same libraries.
+     */
+    private String buildBaseImage(final ArchiveLayers layers, String imageName, Properties properties) throws IOException {
+        String from = properties.getProperty("from.name");
+        String deploymentDir = properties.getProperty("deployment.dir");
+        String deploymentName = properties.getProperty("deployment.name");
+
+        String baseImage = String.format("%s-base:%s", imageName, layers.hash(from, deploymentDir, deploymentName).substring(0, 12));
+        try {
+            dockerClient.inspectImageCmd(baseImage).exec();
+            log.info(String.format("Re-using base image: %s", baseImage));
+            return baseImage;
+        } catch (NotFoundException ignore) {
+            // not built yet
+        }
+
+        final String df = String.format("FROM %s%nADD lib/ %s%n", from, appendPath(appendPath(deploymentDir, deploymentName), "WEB-INF/lib"));
+        log.info(String.format("Base Docker file:\n---\n%s---", df));
+        buildImage(new BuildContext() {
+            public void writeTo(TarStream tar) throws IOException {
+                tar.add("Dockerfile", df);
+                layers.writeLibraries(tar, "lib");
+            }
+        }, baseImage);
+        return baseImage;
+    }
+
+    private void buildImage(final BuildContext context, String imageName) throws IOException {
+        final PipedOutputStream pos = new PipedOutputStream();
+        final PipedInputStream pis = new PipedInputStream(pos, PIPE_SIZE);
+        Future<?> writer = contextWriter.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                try (TarStream tar = new TarStream(pos)) {
+                    context.writeTo(tar);
+                }
+                return null;
+            }
+        });
+
+        try (BuildImageCmd buildImageCmd = dockerClient.buildImageCmd(pis)) {
+            Timer timer = new Timer();
+            String imageId = buildImageCmd.withTag(imageName).exec(new PrintBuildImageResultCallback()).awaitImageId();
+            log.info(String.format("Built image: %s [%s].", imageId, timer));
+        } catch (RuntimeException e) {
+            // most likely the cause, if writing the context failed
+            if (writer.isDone()) {
+                try {
+                    writer.get();
+                } catch (ExecutionException ee) {
+                    e.addSuppressed(ee.getCause());
+                } catch (InterruptedException ignore) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            throw e;
+        } finally {
+            pis.close(); // unblock the writer, if Docker stopped reading early
+        }
+
+        try {
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted writing build context", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot write build context", e.getCause());
+        }
+    }
+
+    private static String appendPath(String dir, String child) {
+        return (dir.endsWith("/") ? dir : dir + "/") + child + "/";
+    }
+
     public void removeImage(String imageId) {
         log.info(String.format("Removing Docker image: %s", imageId));
         RemoveImageCmd removeImageCmd = dockerClient.removeImageCmd(imageId);
@@ -278,6 +450,10 @@ public class DockerAdapterImpl implements DockerAdapter {
         }
     }
 
+    private interface BuildContext {
+        void writeTo(TarStream tar) throws IOException;
+    }
+
     private static class PrintBuildImageResultCallback extends BuildImageResultCallback {
         @Override
         public void onNext(BuildResponseItem item) {
@@ -287,10 +463,29 @@ public class DockerAdapterImpl implements DockerAdapter {
     }
 
     private static class PrintPushImageResultCallback extends PushImageResultCallback {
+        private final PushMetrics metrics;
+
+        private PrintPushImageResultCallback(PushMetrics metrics) {
+            this.metrics = metrics;
+        }
+
         @Override
         public void onNext(PushResponseItem item) {
             super.onNext(item);
             printResponse(String.format("Push progress [%s]", item.getId()), item.getProgress());
+
+            String id = item.getId();
+            String status = item.getStatus();
+            if (id != null && status != null) {
+                if (status.startsWith("Pushing")) {
+                    Long current = (item.getProgressDetail() != null) ? item.getProgressDetail().getCurrent() : null;
+                    metrics.progress(id, current);
+                } else if (status.startsWith("Pushed")) {
+                    metrics.pushed(id, false);
+                } else if (status.contains("already exists") || status.startsWith("Mounted from")) {
+                    metrics.pushed(id, true);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Persistent digest -> pushed image index, so images can be re-used across runs.
+ * <p>
+ * Re-read on every access, as other JVMs (e.g. forked test runs) may share the file.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ImageIndex {
+    private static final Logger log = Logger.getLogger(ImageIndex.class.getName());
+
+    private final File file;
+
+    ImageIndex(File file) {
+        this.file = file;
+    }
+
+    synchronized String get(String digest) {
+        return load().getProperty(digest);
+    }
+
+    synchronized void put(String digest, String image) {
+        Properties properties = load();
+        properties.setProperty(digest, image);
+        store(properties);
+    }
+
+    synchronized void remove(String digest) {
+        Properties properties = load();
+        if (properties.remove(digest) != null) {
+            store(properties);
+        }
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        if (file.exists()) {
+            try (InputStream stream = new FileInputStream(file)) {
+                properties.load(stream);
+            } catch (IOException e) {
+                log.warning(String.format("Cannot read image index %s: %s", file, e));
+            }
+        }
+        return properties;
+    }
+
+    private void store(Properties properties) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir.exists() == false && dir.mkdirs() == false) {
+            log.warning(String.format("Cannot create image index dir: %s", dir));
+            return;
+        }
+        // write aside and rename, so readers never see a partial index
+        File tmp = new File(dir, file.getName() + "." + System.nanoTime());
+        try (OutputStream stream = new FileOutputStream(tmp)) {
+            properties.store(stream, "CE Arquillian image index");
+        } catch (IOException e) {
+            log.warning(String.format("Cannot write image index %s: %s", file, e));
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (tmp.renameTo(file) == false) {
+            log.warning(String.format("Cannot replace image index: %s", file));
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.logging.Logger;
+
+import okhttp3.Credentials;
+import org.jboss.arquillian.ce.utils.Configuration;
+
+/**
+ * Docker registry v2 API -- checks whether an image's manifest was already pushed.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class ImageRegistry {
+    private static final Logger log = Logger.getLogger(ImageRegistry.class.getName());
+
+    private final Configuration configuration;
+
+    ImageRegistry(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param image full image name, host[:port]/repository:tag
+     * @param scheme registry API scheme from the registry lookup, null if unknown
+     * @return true if the registry has the manifest, false if it doesn't or we cannot tell
+     */
+    boolean hasManifest(String image, String scheme) {
+        int slash = image.indexOf('/');
+        int colon = image.lastIndexOf(':');
+        if (slash < 0 || colon < slash) {
+            throw new IllegalArgumentException(String.format("Image %s has no registry or tag!", image));
+        }
+        String host = image.substring(0, slash);
+        String path = String.format("/v2/%s/manifests/%s", image.substring(slash + 1, colon), image.substring(colon + 1));
+
+        for (String protocol : protocols(scheme)) {
+            try {
+                int status = head(new URL(protocol, host.split(":")[0], port(host), path));
+                if (status == HttpURLConnection.HTTP_OK) {
+                    return true;
+                } else if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                    return false;
+                }
+                log.info(String.format("Manifest check %s://%s%s returned %s", protocol, host, path, status));
+            } catch (IOException e) {
+                log.info(String.format("Manifest check %s://%s%s failed: %s", protocol, host, path, e));
+            }
+        }
+        return false;
+    }
+
+    private String[] protocols(String scheme) {
+        boolean insecure = configuration.isRegistryInsecure();
+        if ("http".equals(scheme)) {
+            if (insecure == false) {
+                log.info("Registry is plain http and kubernetes.registry.insecure is not set, skipping manifest check.");
+                return new String[0];
+            }
+            return new String[]{"http"};
+        } else if ("https".equals(scheme) || insecure == false) {
+            return new String[]{"https"};
+        } else {
+            return new String[]{"https", "http"};
+        }
+    }
+
+    private static int port(String host) {
+        int colon = host.indexOf(':');
+        return colon < 0 ? -1 : Integer.parseInt(host.substring(colon + 1));
+    }
+
+    private int head(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(10000);
+            connection.setReadTimeout(10000);
+            connection.setRequestProperty("Accept", "application/vnd.docker.distribution.manifest.v2+json");
+            String username = configuration.getDockerUsername();
+            String password = configuration.getDockerPassword();
+            // never send credentials in cleartext
+            if ("https".equals(url.getProtocol()) && username != null && username.length() > 0) {
+                connection.setRequestProperty("Authorization", Credentials.basic(username, password));
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
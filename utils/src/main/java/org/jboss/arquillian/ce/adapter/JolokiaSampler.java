@@ -0,0 +1,321 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.api.MetricSampler;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
+import org.json.simple.JSONValue;
+
+/**
+ * Samples a bulk Jolokia request on all ready pods, into fixed size primitive ring buffers.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class JolokiaSampler implements MetricSampler {
+    private static final Logger log = Logger.getLogger(JolokiaSampler.class.getName());
+
+    private final AbstractOpenShiftAdapter adapter;
+    private final String prefix;
+    private final List<String> metrics = new ArrayList<>();
+    private final List<Object> requests = new ArrayList<>();
+    private final int capacity;
+    private final File dumpDir;
+    private final Map<String, Series> series = new TreeMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("ce-arq-sampler"));
+    private final Set<String> failing = new HashSet<>(); // pods which failed to be sampled
+    private boolean failed;
+
+    JolokiaSampler(AbstractOpenShiftAdapter adapter, String prefix, Map<String, ?> input, int capacity, File dumpDir) {
+        this.adapter = adapter;
+        this.prefix = prefix;
+        for (Map.Entry<String, ?> entry : input.entrySet()) {
+            metrics.add(entry.getKey());
+            requests.add(entry.getValue());
+        }
+        this.capacity = capacity;
+        this.dumpDir = dumpDir;
+    }
+
+    JolokiaSampler start(long period) {
+        log.info(String.format("Sampling %s on %s pods every %sms ...", metrics, prefix, period));
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                sample();
+            }
+        }, 0, period, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    private void sample() {
+        long time = System.currentTimeMillis();
+        Map<String, List<Object>> results;
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        try {
+            results = adapter.jolokiaSample(prefix, requests, failures);
+        } catch (Exception e) {
+            // skip the sample; only report the first failure, as it's likely to repeat
+            log.log(failed ? Level.FINE : Level.WARNING, String.format("Cannot sample %s pods: %s", prefix, e), e);
+            failed = true;
+            return;
+        }
+        // a failing pod only misses this sample, report its first failure
+        for (Map.Entry<String, Exception> entry : failures.entrySet()) {
+            boolean first = failing.add(entry.getKey());
+            log.log(first ? Level.WARNING : Level.FINE, String.format("Cannot sample pod %s: %s", entry.getKey(), entry.getValue()), entry.getValue());
+        }
+
+        for (Map.Entry<String, List<Object>> entry : results.entrySet()) {
+            double[] sample = new double[metrics.size()];
+            for (int i = 0; i < sample.length; i++) {
+                sample[i] = toDouble(entry.getValue().get(i));
+            }
+            add(entry.getKey(), time, sample);
+        }
+    }
+
+    synchronized void add(String podName, long time, double[] sample) {
+        Series s = series.get(podName);
+        if (s == null) {
+            s = new Series(metrics.size(), capacity);
+            series.put(podName, s);
+        }
+        s.add(time, sample);
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value) ? 1 : 0;
+        } else {
+            return Double.NaN;
+        }
+    }
+
+    private Series getSeries(String podName) {
+        Series s = series.get(podName);
+        if (s == null) {
+            throw new IllegalArgumentException("No such pod sampled: " + podName);
+        }
+        return s;
+    }
+
+    private int index(String metric) {
+        int index = metrics.indexOf(metric);
+        if (index < 0) {
+            throw new IllegalArgumentException("No such metric: " + metric);
+        }
+        return index;
+    }
+
+    public synchronized Set<String> getPods() {
+        return new HashSet<>(series.keySet());
+    }
+
+    public synchronized long[] getTimes(String podName) {
+        return getSeries(podName).times();
+    }
+
+    public synchronized double[] getValues(String podName, String metric) {
+        return getSeries(podName).values(index(metric));
+    }
+
+    public synchronized double getMax(String metric) {
+        int index = index(metric);
+        double max = Double.NaN;
+        for (Series s : series.values()) {
+            for (double value : s.values(index)) {
+                if (Double.isNaN(max) || value > max) {
+                    max = value;
+                }
+            }
+        }
+        return max;
+    }
+
+    public synchronized double getSlope(String podName, String metric) {
+        Series s = getSeries(podName);
+        long[] times = s.times();
+        double[] values = s.values(index(metric));
+
+        int n = 0;
+        double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        for (int i = 0; i < times.length; i++) {
+            if (Double.isNaN(values[i])) {
+                continue;
+            }
+            double x = (times[i] - times[0]) / 1000.0;
+            n++;
+            sumX += x;
+            sumY += values[i];
+            sumXY += x * values[i];
+            sumXX += x * x;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        if (n < 2 || denominator == 0) {
+            return Double.NaN;
+        }
+        return (n * sumXY - sumX * sumY) / denominator;
+    }
+
+    public synchronized void writeCsv(Writer writer) throws IOException {
+        writer.write("pod,time");
+        for (String metric : metrics) {
+            writer.write("," + metric);
+        }
+        writer.write("\n");
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            long[] times = entry.getValue().times();
+            List<double[]> values = entry.getValue().values();
+            for (int i = 0; i < times.length; i++) {
+                writer.write(entry.getKey() + "," + times[i]);
+                for (double[] v : values) {
+                    writer.write(",");
+                    if (Double.isNaN(v[i]) == false) {
+                        writer.write(String.valueOf(v[i]));
+                    }
+                }
+                writer.write("\n");
+            }
+        }
+        writer.flush();
+    }
+
+    public synchronized void writeJson(Writer writer) throws IOException {
+        writer.write("{");
+        boolean first = true;
+        for (Map.Entry<String, Series> entry : series.entrySet()) {
+            if (first == false) {
+                writer.write(",");
+            }
+            first = false;
+            writer.write(String.format("\"%s\":{\"time\":[", JSONValue.escape(entry.getKey())));
+            long[] times = entry.getValue().times();
+            for (int i = 0; i < times.length; i++) {
+                writer.write((i > 0 ? "," : "") + times[i]);
+            }
+            writer.write("]");
+            List<double[]> values = entry.getValue().values();
+            for (int m = 0; m < metrics.size(); m++) {
+                writer.write(String.format(",\"%s\":[", JSONValue.escape(metrics.get(m))));
+                double[] v = values.get(m);
+                for (int i = 0; i < v.length; i++) {
+                    writer.write((i > 0 ? "," : "") + (Double.isNaN(v[i]) ? "null" : String.valueOf(v[i])));
+                }
+                writer.write("]");
+            }
+            writer.write("}");
+        }
+        writer.write("}");
+        writer.flush();
+    }
+
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        if (dumpDir != null) {
+            if (dumpDir.exists() == false && dumpDir.mkdirs() == false) {
+                throw new IllegalStateException("Cannot create sample dir: " + dumpDir);
+            }
+            String name = String.format("%s-%s", prefix, System.currentTimeMillis());
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dumpDir, name + ".csv")), StandardCharsets.UTF_8)) {
+                writeCsv(writer);
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dumpDir, name + ".json")), StandardCharsets.UTF_8)) {
+                writeJson(writer);
+            }
+            log.info(String.format("Samples of %s pods written to %s", prefix, new File(dumpDir, name + ".[csv|json]")));
+        }
+    }
+
+    // a ring of sample times, with a ring of values per metric
+    static class Series {
+        private final long[] times;
+        private final double[][] values;
+        private int next;
+        private int size;
+
+        Series(int metrics, int capacity) {
+            this.times = new long[capacity];
+            this.values = new double[metrics][capacity];
+        }
+
+        void add(long time, double[] sample) {
+            times[next] = time;
+            for (int m = 0; m < sample.length; m++) {
+                values[m][next] = sample[m];
+            }
+            next = (next + 1) % times.length;
+            if (size < times.length) {
+                size++;
+            }
+        }
+
+        private int start() {
+            return (next - size + times.length) % times.length;
+        }
+
+        long[] times() {
+            long[] result = new long[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = times[(start() + i) % times.length];
+            }
+            return result;
+        }
+
+        double[] values(int metric) {
+            double[] result = new double[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = values[metric][(start() + i) % times.length];
+            }
+            return result;
+        }
+
+        List<double[]> values() {
+            List<double[]> result = new ArrayList<>();
+            for (int m = 0; m < values.length; m++) {
+                result.add(values(m));
+            }
+            return result;
+        }
+    }
+}
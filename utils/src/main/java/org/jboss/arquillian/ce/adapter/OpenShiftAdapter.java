@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import org.jboss.arquillian.ce.api.OpenShiftHandle;
 import org.jboss.arquillian.ce.api.model.OpenShiftResource;
@@ -37,6 +38,7 @@ import org.jboss.arquillian.ce.utils.Operator;
 import org.jboss.arquillian.ce.utils.ParamValue;
 import org.jboss.arquillian.ce.utils.RCContext;
 import org.jboss.arquillian.ce.utils.RegistryLookup;
+import org.jboss.shrinkwrap.api.Archive;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
@@ -44,7 +46,7 @@ import org.jboss.arquillian.ce.utils.RegistryLookup;
 public interface OpenShiftAdapter extends Closeable, RegistryLookup, OpenShiftHandle {
     Proxy getProxy();
 
-    PortForwardContext createPortForwardContext(Map<String, String> labels, int port);
+    PortForwardContext createPortForwardContext(Map<String, String> labels, int... ports);
 
     /**
      * @return true if the project was created; false if the project already exists
@@ -53,6 +55,19 @@ public interface OpenShiftAdapter extends Closeable, RegistryLookup, OpenShiftHa
 
     boolean deleteProject();
 
+    /**
+     * Create the project, if it doesn't exist yet, and wait until its service accounts have their secrets.
+     */
+    void warmProject(String name) throws Exception;
+
+    /**
+     * Delete deployments, builds, services, routes, image streams and pods in the project, but keep the project.
+     * <p>
+     * This deletes everything in the namespace, not just what we created -- only safe on a project
+     * leased from the ProjectPool, which nobody else uses while we hold the lease.
+     */
+    void scrubProject(String name) throws Exception;
+
     String deployPod(String name, String env, RCContext context) throws Exception;
 
     String deployReplicationController(String name, String env, RCContext context) throws Exception;
@@ -61,10 +76,29 @@ public interface OpenShiftAdapter extends Closeable, RegistryLookup, OpenShiftHa
 
     Object deleteTemplate(String templateKey) throws Exception;
 
+    /**
+     * @return true if binaryBuild is supported
+     */
+    boolean supportsBinaryBuild();
+
+    /**
+     * Streams the archive into a binary build, follows its log and waits for it to complete.
+     *
+     * @param buildConfig the build config, or null for the only one matching the labels
+     * @param dir         the archive's dir in the build input
+     * @return the build name
+     */
+    String binaryBuild(String buildConfig, Map<String, String> labels, Archive<?> archive, String dir) throws Exception;
+
     Object createResource(String resourcesKey, InputStream stream) throws IOException;
 
     Object deleteResources(String resourcesKey);
 
+    /**
+     * Deletes the resources concurrently, without waiting for them.
+     */
+    Future<?> deleteResourcesAsync(String resourcesKey);
+
     Object addRoleBinding(String resourcesKey, String roleRefName, String userName);
 
     Object getService(String namespace, String serviceName);
@@ -73,6 +107,11 @@ public interface OpenShiftAdapter extends Closeable, RegistryLookup, OpenShiftHa
 
     void cleanPods(Map<String, String> labels) throws Exception;
 
+    /**
+     * Deletes the replication controllers and then the pods matching the labels, without waiting for them.
+     */
+    Future<?> cleanupAsync(Map<String, String> labels, String... rcNames);
+
     /**
      * @param op compare current number of pods vs. replicas
      */
@@ -0,0 +1,341 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.jboss.arquillian.ce.api.LogCollector;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
+
+/**
+ * Follows the logs of all pods matching a selector, one stream per pod, each into a bounded line buffer.
+ * <p>
+ * New pods are picked up by polling. If the log lines carry their timestamps, a dropped stream is resumed
+ * after the last line read, while its pod is still running; otherwise it is read once.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public abstract class PodLogCollector implements LogCollector {
+    private static final Logger log = Logger.getLogger(PodLogCollector.class.getName());
+    private static final long POLL_PERIOD = 1000L;
+
+    private final int tailLines;
+    private final int capacity;
+    private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("ce-arq-logs"));
+    private final Map<String, Deque<String>> buffers = new LinkedHashMap<>();
+    private final Map<String, InputStream> streams = new ConcurrentHashMap<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private volatile Map<String, String> current = new HashMap<>(); // pod -> phase
+    private volatile boolean closed;
+
+    protected PodLogCollector(int tailLines, int capacity) {
+        this.tailLines = tailLines;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return names and phases of the pods currently matching the selector
+     */
+    protected abstract Map<String, String> listPods() throws Exception;
+
+    /**
+     * Open a followed log stream.
+     *
+     * @param podName   the pod name
+     * @param tailLines the existing lines to start with, -1 for all
+     * @param sinceTime RFC 3339 time to start from, or null
+     */
+    protected abstract InputStream openLog(String podName, int tailLines, String sinceTime) throws Exception;
+
+    /**
+     * Whether each line of a log stream is prefixed with its RFC 3339 timestamp, which makes it resumable.
+     */
+    protected boolean hasTimestamps() {
+        return false;
+    }
+
+    /**
+     * Start following; pods already there start with the last tail lines, later ones from their start.
+     */
+    public PodLogCollector start() throws Exception {
+        current = listPods();
+        for (String pod : current.keySet()) {
+            follow(pod, tailLines);
+        }
+        executor.submit(new Runnable() {
+            public void run() {
+                while (closed == false) {
+                    try {
+                        Thread.sleep(POLL_PERIOD);
+                        Map<String, String> pods = listPods();
+                        current = pods;
+                        for (String pod : pods.keySet()) {
+                            if (isFollowed(pod) == false) {
+                                follow(pod, -1);
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (Exception e) {
+                        log.log(Level.FINE, String.format("Cannot list pods: %s", e), e);
+                    }
+                }
+            }
+        });
+        return this;
+    }
+
+    private synchronized boolean isFollowed(String pod) {
+        return buffers.containsKey(pod);
+    }
+
+    private void follow(final String pod, final int initialTailLines) {
+        synchronized (this) {
+            buffers.put(pod, new ArrayDeque<String>());
+        }
+        log.info(String.format("Following log of pod %s ...", pod));
+        executor.submit(new Runnable() {
+            public void run() {
+                final boolean timestamps = hasTimestamps();
+                Position position = new Position();
+                while (closed == false) {
+                    String sinceTime = position.sinceTime();
+                    position.resume();
+                    try (InputStream stream = openLog(pod, sinceTime == null ? initialTailLines : -1, sinceTime)) {
+                        streams.put(pod, stream);
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (timestamps) {
+                                int space = line.indexOf(' ');
+                                String timestamp = (space > 0) ? line.substring(0, space) : line;
+                                if (position.read(timestamp) == false) {
+                                    continue; // already read before the stream dropped
+                                }
+                                line = (space > 0) ? line.substring(space + 1) : "";
+                            }
+                            append(pod, line);
+                        }
+                    } catch (Exception e) {
+                        log.log(Level.FINE, String.format("Log stream of pod %s dropped: %s", pod, e), e);
+                    } finally {
+                        streams.remove(pod);
+                    }
+                    if (closed || timestamps == false || isRunning(pod) == false) {
+                        return;
+                    }
+                    try {
+                        Thread.sleep(POLL_PERIOD);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean isRunning(String pod) {
+        try {
+            current = listPods();
+        } catch (Exception e) {
+            log.log(Level.FINE, String.format("Cannot list pods: %s", e), e);
+        }
+        String phase = current.get(pod);
+        return phase != null && "Succeeded".equals(phase) == false && "Failed".equals(phase) == false;
+    }
+
+    private synchronized void append(String pod, String line) {
+        Deque<String> buffer = buffers.get(pod);
+        if (buffer.size() >= capacity) {
+            buffer.removeFirst();
+        }
+        buffer.addLast(line);
+
+        for (Waiter waiter : new ArrayList<>(waiters)) {
+            if (waiter.pattern.matcher(line).find()) {
+                waiter.match = line;
+                waiters.remove(waiter);
+            }
+        }
+        notifyAll();
+    }
+
+    public synchronized Set<String> getPods() {
+        return new HashSet<>(buffers.keySet());
+    }
+
+    public synchronized List<String> getLines(String podName) {
+        Deque<String> buffer = buffers.get(podName);
+        if (buffer == null) {
+            throw new IllegalArgumentException("No such pod followed: " + podName);
+        }
+        return new ArrayList<>(buffer);
+    }
+
+    public synchronized List<String> grep(String regexp) {
+        Pattern pattern = Pattern.compile(regexp);
+        List<String> matches = new ArrayList<>();
+        for (Deque<String> buffer : buffers.values()) {
+            for (String line : buffer) {
+                if (pattern.matcher(line).find()) {
+                    matches.add(line);
+                }
+            }
+        }
+        return matches;
+    }
+
+    public synchronized String await(String regexp, long timeout, TimeUnit unit) throws Exception {
+        List<String> matches = grep(regexp);
+        if (matches.isEmpty() == false) {
+            return matches.get(0);
+        }
+
+        Waiter waiter = new Waiter(Pattern.compile(regexp));
+        waiters.add(waiter);
+        try {
+            long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+            while (waiter.match == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closed) {
+                    throw new IllegalStateException(String.format("No log line matching '%s' in %s %s", regexp, timeout, unit));
+                }
+                wait(remaining);
+            }
+            return waiter.match;
+        } finally {
+            waiters.remove(waiter);
+        }
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        // unblock the readers
+        for (InputStream stream : streams.values()) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
+        executor.shutdownNow();
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private static class Waiter {
+        private final Pattern pattern;
+        private String match;
+
+        private Waiter(Pattern pattern) {
+            this.pattern = pattern;
+        }
+    }
+
+    /**
+     * Position in a timestamped log: the last timestamp read, and how many lines carried it --
+     * resuming at second granularity re-reads lines, which are skipped up to that position.
+     */
+    static class Position {
+        private String last;
+        private int count;
+        private String skipTo;
+        private int skipCount;
+
+        /**
+         * @return the time to resume from, or null if nothing was read yet
+         */
+        String sinceTime() {
+            return (last != null && last.length() >= 19) ? last.substring(0, 19) + "Z" : null;
+        }
+
+        /**
+         * Start reading a resumed stream.
+         */
+        void resume() {
+            skipTo = last;
+            skipCount = count;
+        }
+
+        /**
+         * @return false if the line was already read
+         */
+        boolean read(String timestamp) {
+            String normalized = normalize(timestamp);
+            if (skipTo != null) {
+                int compared = normalized.compareTo(skipTo);
+                if (compared < 0) {
+                    return false;
+                } else if (compared == 0 && skipCount > 0) {
+                    skipCount--;
+                    return false;
+                }
+                skipTo = null;
+            }
+            if (normalized.equals(last)) {
+                count++;
+            } else {
+                last = normalized;
+                count = 1;
+            }
+            return true;
+        }
+
+        /**
+         * RFC 3339 UTC time with nanos, fraction padded to nine digits, so it sorts as a string.
+         */
+        static String normalize(String timestamp) {
+            if (timestamp.length() < 20 || timestamp.endsWith("Z") == false) {
+                return timestamp;
+            }
+            String seconds = timestamp.substring(0, 19);
+            String fraction = (timestamp.charAt(19) == '.') ? timestamp.substring(20, timestamp.length() - 1) : "";
+            StringBuilder builder = new StringBuilder(seconds).append('.').append(fraction);
+            for (int i = fraction.length(); i < 9; i++) {
+                builder.append('0');
+            }
+            return builder.append('Z').toString();
+        }
+    }
+}
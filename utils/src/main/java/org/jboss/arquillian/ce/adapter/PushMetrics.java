@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-layer push metrics -- bytes, duration and throughput, as reported by the Docker push progress.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class PushMetrics {
+    private final String image;
+    private final long start = System.currentTimeMillis();
+    private volatile long end;
+    private final Map<String, Layer> layers = new LinkedHashMap<>();
+
+    PushMetrics(String image) {
+        this.image = image;
+    }
+
+    synchronized void progress(String id, Long current) {
+        Layer layer = layer(id);
+        if (current != null) {
+            layer.bytes = Math.max(layer.bytes, current);
+        }
+    }
+
+    synchronized void pushed(String id, boolean existing) {
+        Layer layer = layer(id);
+        layer.existing = existing;
+        layer.end = System.currentTimeMillis();
+    }
+
+    void finish() {
+        end = System.currentTimeMillis();
+    }
+
+    private Layer layer(String id) {
+        Layer layer = layers.get(id);
+        if (layer == null) {
+            layer = new Layer(id);
+            layers.put(id, layer);
+        }
+        return layer;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    public synchronized List<Layer> getLayers() {
+        return new ArrayList<>(layers.values());
+    }
+
+    public synchronized long getBytes() {
+        long bytes = 0;
+        for (Layer layer : layers.values()) {
+            bytes += layer.bytes;
+        }
+        return bytes;
+    }
+
+    public long getDuration() {
+        return (end > 0 ? end : System.currentTimeMillis()) - start;
+    }
+
+    /**
+     * @return bytes per second, over the whole push
+     */
+    public double getThroughput() {
+        return throughput(getBytes(), getDuration());
+    }
+
+    private static double throughput(long bytes, long millis) {
+        return (millis > 0) ? (bytes * 1000.0) / millis : 0.0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Push %s: %s bytes in %sms (%.1f KB/s)", image, getBytes(), getDuration(), getThroughput() / 1024));
+        for (Layer layer : layers.values()) {
+            builder.append("\n  ").append(layer);
+        }
+        return builder.toString();
+    }
+
+    public static class Layer {
+        private final String id;
+        private final long start = System.currentTimeMillis();
+        private long end;
+        private long bytes;
+        private boolean existing;
+
+        private Layer(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return true if the registry already had the layer, nothing was uploaded
+         */
+        public boolean isExisting() {
+            return existing;
+        }
+
+        public long getDuration() {
+            return (end > 0 ? end : System.currentTimeMillis()) - start;
+        }
+
+        public double getThroughput() {
+            return throughput(bytes, getDuration());
+        }
+
+        @Override
+        public String toString() {
+            if (existing) {
+                return String.format("Layer %s: already exists", id);
+            }
+            return String.format("Layer %s: %s bytes in %sms (%.1f KB/s)", id, bytes, getDuration(), getThroughput() / 1024);
+        }
+    }
+}
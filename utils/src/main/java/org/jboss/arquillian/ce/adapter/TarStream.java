@@ -0,0 +1,211 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+
+/**
+ * Minimal ustar writer, enough for a Docker build context -- regular files only.
+ * <p>
+ * Tar headers need the size up front, hence assets are buffered in memory,
+ * while archives, which can be large, are exported twice -- once only counting the bytes, then straight into the tar.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class TarStream implements Closeable {
+    private static final int BLOCK = 512;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final OutputStream output;
+    private final long mtime = System.currentTimeMillis() / 1000L;
+
+    TarStream(OutputStream output) {
+        this.output = output;
+    }
+
+    void add(String name, String content) throws IOException {
+        add(name, content.getBytes(UTF_8));
+    }
+
+    void add(String name, Asset asset) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (InputStream stream = asset.openStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                baos.write(buffer, 0, read);
+            }
+        }
+        add(name, baos.toByteArray());
+    }
+
+    void add(String name, Archive<?> archive) throws IOException {
+        ZipExporter exporter = archive.as(ZipExporter.class);
+        EntryStream counter = new EntryStream(name, null, Long.MAX_VALUE);
+        exporter.exportTo(counter);
+        long size = counter.written;
+
+        output.write(header(name, size));
+        EntryStream entry = new EntryStream(name, output, size);
+        exporter.exportTo(entry);
+        if (entry.written != size) {
+            throw new IllegalStateException(String.format("Entry %s is %s bytes, declared %s", name, entry.written, size));
+        }
+        pad(size);
+    }
+
+    void add(String name, byte[] bytes) throws IOException {
+        output.write(header(name, bytes.length));
+        output.write(bytes);
+        pad(bytes.length);
+    }
+
+    void add(String name, long size, InputStream stream) throws IOException {
+        output.write(header(name, size));
+        byte[] buffer = new byte[8192];
+        long written = 0;
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            if (written + read > size) {
+                throw new IllegalStateException(String.format("Entry %s is larger than its declared size %s", name, size));
+            }
+            output.write(buffer, 0, read);
+            written += read;
+        }
+        if (written != size) {
+            throw new IllegalStateException(String.format("Entry %s is %s bytes, declared %s", name, written, size));
+        }
+        pad(size);
+    }
+
+    private void pad(long size) throws IOException {
+        int padding = (int) ((BLOCK - size % BLOCK) % BLOCK);
+        output.write(new byte[padding]);
+    }
+
+    private byte[] header(String name, long size) {
+        if (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        byte[] path = name.getBytes(UTF_8);
+        byte[] prefix = new byte[0];
+        if (path.length > 100) {
+            // ustar: split at a '/', prefix up to 155 bytes, name up to 100
+            int split = name.lastIndexOf('/', 155);
+            if (split <= 0 || name.substring(split + 1).getBytes(UTF_8).length > 100 || name.substring(0, split).getBytes(UTF_8).length > 155) {
+                throw new IllegalArgumentException("Path too long for tar: " + name);
+            }
+            prefix = name.substring(0, split).getBytes(UTF_8);
+            path = name.substring(split + 1).getBytes(UTF_8);
+        }
+
+        byte[] header = new byte[BLOCK];
+        System.arraycopy(path, 0, header, 0, path.length);
+        octal(header, 100, 8, 0644);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, mtime);
+        header[156] = '0'; // regular file
+        System.arraycopy("ustar\u000000".getBytes(UTF_8), 0, header, 257, 8);
+        System.arraycopy(prefix, 0, header, 345, prefix.length);
+
+        // checksum is computed with its own field set to spaces
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += (b & 0xff);
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+
+    // zero padded octal, NUL terminated
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String string = Long.toOctalString(value);
+        if (string.length() > length - 1) {
+            throw new IllegalArgumentException(String.format("Value %s too big for tar header field", value));
+        }
+        for (int i = 0; i < length - 1 - string.length(); i++) {
+            header[offset + i] = '0';
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        System.arraycopy(bytes, 0, header, offset + length - 1 - bytes.length, bytes.length);
+        header[offset + length - 1] = 0;
+    }
+
+    /**
+     * Counts the bytes written, passing them on if there is a target, up to the declared size.
+     * Exporters close their target, the tar output is kept open.
+     */
+    private static class EntryStream extends OutputStream {
+        private final String name;
+        private final OutputStream target;
+        private final long size;
+        private long written;
+
+        private EntryStream(String name, OutputStream target, long size) {
+            this.name = name;
+            this.target = target;
+            this.size = size;
+        }
+
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (written + length > size) {
+                throw new IllegalStateException(String.format("Entry %s is larger than its declared size %s", name, size));
+            }
+            if (target != null) {
+                target.write(bytes, offset, length);
+            }
+            written += length;
+        }
+
+        public void close() {
+        }
+    }
+
+    public void close() throws IOException {
+        try {
+            output.write(new byte[2 * BLOCK]); // end of archive
+            output.flush();
+        } finally {
+            output.close();
+        }
+    }
+}
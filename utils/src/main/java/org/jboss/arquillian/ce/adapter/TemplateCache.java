@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * Template content cache -- in memory for the JVM, and on disk across runs.
+ * <p>
+ * A disk copy is re-validated once per JVM with a conditional GET (ETag / Last-Modified),
+ * and used as is if the template server cannot be reached or answers with an error.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TemplateCache {
+    private static final Logger log = Logger.getLogger(TemplateCache.class.getName());
+
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+
+    // shared by all adapters in this JVM
+    private static final ConcurrentMap<String, byte[]> memory = new ConcurrentHashMap<>();
+
+    private final File dir;
+
+    public TemplateCache(File dir) {
+        this.dir = dir;
+    }
+
+    public byte[] get(String templateURL) throws IOException {
+        byte[] content = memory.get(templateURL);
+        if (content == null) {
+            URL url = new URL(templateURL);
+            if ("http".equals(url.getProtocol()) || "https".equals(url.getProtocol())) {
+                content = fetch(templateURL, url);
+            } else {
+                content = read(url.openStream());
+            }
+            byte[] previous = memory.putIfAbsent(templateURL, content);
+            if (previous != null) {
+                content = previous;
+            }
+        }
+        return content;
+    }
+
+    private byte[] fetch(String templateURL, URL url) throws IOException {
+        String key = key(templateURL);
+        File data = new File(dir, key + ".template");
+        File meta = new File(dir, key + ".properties");
+        Properties properties = load(meta);
+        boolean cached = data.exists();
+
+        HttpURLConnection connection;
+        int code;
+        try {
+            connection = (HttpURLConnection) url.openConnection();
+            if (cached) {
+                String etag = properties.getProperty(ETAG);
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                String lastModified = properties.getProperty(LAST_MODIFIED);
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+            code = connection.getResponseCode();
+        } catch (IOException e) {
+            if (cached) {
+                log.warning(String.format("Cannot fetch template %s, using cached copy: %s", templateURL, e));
+                return read(new FileInputStream(data));
+            }
+            throw e;
+        }
+
+        if (cached && code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            log.info(String.format("Template %s not modified, using cached copy.", templateURL));
+            return read(new FileInputStream(data));
+        }
+        if (cached && code >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            log.warning(String.format("Cannot fetch template %s, using cached copy: %s %s", templateURL, code, connection.getResponseMessage()));
+            connection.disconnect();
+            return read(new FileInputStream(data));
+        }
+
+        byte[] content = read(connection.getInputStream());
+        store(templateURL, connection, content, data, meta);
+        return content;
+    }
+
+    private void store(String templateURL, URLConnection connection, byte[] content, File data, File meta) {
+        String etag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        if (etag == null && lastModified == null) {
+            return; // nothing to re-validate with
+        }
+        if (dir.exists() == false && dir.mkdirs() == false) {
+            log.warning(String.format("Cannot create template cache dir: %s", dir));
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("url", templateURL);
+        if (etag != null) {
+            properties.setProperty(ETAG, etag);
+        }
+        if (lastModified != null) {
+            properties.setProperty(LAST_MODIFIED, lastModified);
+        }
+
+        // write aside and rename, so other JVMs never see a partial copy
+        File tmpData = new File(dir, data.getName() + "." + System.nanoTime());
+        File tmpMeta = new File(dir, meta.getName() + "." + System.nanoTime());
+        try {
+            try (OutputStream stream = new FileOutputStream(tmpData)) {
+                stream.write(content);
+            }
+            try (OutputStream stream = new FileOutputStream(tmpMeta)) {
+                properties.store(stream, "CE Arquillian template cache");
+            }
+            if (tmpData.renameTo(data) == false || tmpMeta.renameTo(meta) == false) {
+                log.warning(String.format("Cannot replace cached template: %s", data));
+            }
+        } catch (IOException e) {
+            log.warning(String.format("Cannot cache template %s: %s", templateURL, e));
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            tmpData.delete();
+            //noinspection ResultOfMethodCallIgnored
+            tmpMeta.delete();
+        }
+    }
+
+    private static Properties load(File meta) {
+        Properties properties = new Properties();
+        if (meta.exists()) {
+            try (InputStream stream = new FileInputStream(meta)) {
+                properties.load(stream);
+            } catch (IOException e) {
+                log.warning(String.format("Cannot read cached template metadata %s: %s", meta, e));
+            }
+        }
+        return properties;
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                baos.write(buffer, 0, n);
+            }
+            return baos.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+
+    static String key(String templateURL) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(templateURL.getBytes(StandardCharsets.UTF_8));
+            return String.format("%040x", new BigInteger(1, hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
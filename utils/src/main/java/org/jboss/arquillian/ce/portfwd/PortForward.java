@@ -30,7 +30,14 @@ import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import okhttp3.Connection;
@@ -38,6 +45,7 @@ import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
@@ -45,6 +53,13 @@ import okhttp3.Response;
 public class PortForward {
     private static final Logger log = Logger.getLogger(PortForward.class.getName());
     private static final String PORT_FWD = "%s/proxy/minions/%s/portForward/%s/%s";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final int MAX_CONNECTIONS = 64;
+
+    // shared by all forwards; relays block on their sockets, two per local connection, hence the connection cap
+    private static final ExecutorService relays = Executors.newFixedThreadPool(2 * MAX_CONNECTIONS, new DaemonThreadFactory("ce-arq-portfwd"));
+    private static final Semaphore connections = new Semaphore(MAX_CONNECTIONS);
 
     private final OkHttpClient client;
 
@@ -69,65 +84,316 @@ public class PortForward {
         }
 
         final ServerSocket server = new ServerSocket(context.getPort(), 0, InetAddress.getLocalHost());
+        final Metrics metrics = new Metrics();
 
-        Runnable runnable = new Runnable() {
+        Runnable acceptor = new Runnable() {
             public void run() {
                 while (server.isClosed() == false) {
                     try {
                         final Socket socket = server.accept();
+                        if (acquire(socket) == false) {
+                            continue;
+                        }
                         final Socket osSocket = interceptor.getConnection().socket();
+                        metrics.connection();
 
-                        Runnable writer = new Runnable() {
+                        final AtomicLong firstSent = new AtomicLong();
+                        final Runnable release = release();
+                        relays.execute(new Runnable() {
                             public void run() {
-                                int x;
                                 // write to OpenShift
                                 try (InputStream input = socket.getInputStream()) {
-                                    while ((x = input.read()) != -1) {
-                                        osSocket.getOutputStream().write(x);
-                                    }
+                                    relay(input, osSocket.getOutputStream(), metrics, true, firstSent, null);
                                 } catch (IOException ignored) {
+                                } finally {
+                                    release.run();
                                 }
                             }
-                        };
-                        new Thread(writer).start();
-
-                        Runnable reader = new Runnable() {
+                        });
+                        relays.execute(new Runnable() {
                             public void run() {
-                                int x;
                                 // read from OpenShift
                                 try (OutputStream output = socket.getOutputStream()) {
-                                    InputStream osInput = osSocket.getInputStream();
-                                    while ((x = osInput.read()) != -1) {
-                                        output.write(x);
-                                    }
+                                    relay(osSocket.getInputStream(), output, metrics, false, null, new FirstByte(firstSent, metrics));
                                 } catch (IOException ignored) {
+                                } finally {
+                                    release.run();
                                 }
                             }
-                        };
-                        new Thread(reader).start();
+                        });
                     } catch (IOException e) {
-                        log.warning("Error: " + e.getMessage());
+                        if (server.isClosed() == false) {
+                            log.warning("Error: " + e.getMessage());
+                        }
                     }
                 }
             }
         };
 
-        new Thread(runnable).start();
+        Thread thread = new Thread(acceptor, "ce-arq-portfwd-accept-" + context.getPort());
+        thread.setDaemon(true);
+        thread.start();
 
         return new Handle() {
             public InetAddress getInetAddress() {
                 return server.getInetAddress();
             }
 
+            public Metrics getMetrics() {
+                return metrics;
+            }
+
             public void close() throws IOException {
+                log.info(String.format("Closing port forward %s", metrics));
                 doClose(server);
                 doClose(interceptor.getConnection().socket());
             }
         };
     }
 
+    /**
+     * Forward all the context's ports through one WebSocket tunnel to the pod.
+     * <p>
+     * The first local connection to each port rides the shared tunnel. As the protocol carries
+     * one stream per port, further connections take a spare stream of an open extra tunnel,
+     * or open an extra tunnel for all the ports; an extra closes once its attached streams are done.
+     */
+    public PortForward.Handle open(final PortForwardContext context) throws IOException {
+        final Metrics metrics = new Metrics();
+        final PortForwardTunnel tunnel = PortForwardTunnel.open(client, context, context.getPorts(), metrics, relays, false);
+        final List<PortForwardTunnel> extras = new CopyOnWriteArrayList<>();
+        final List<ServerSocket> servers = new ArrayList<>();
+
+        try {
+            int[] ports = context.getPorts();
+            for (int i = 0; i < ports.length; i++) {
+                final int index = i;
+                final int port = ports[i];
+                final ServerSocket server = new ServerSocket(port, 0, InetAddress.getLocalHost());
+                servers.add(server);
+
+                Runnable acceptor = new Runnable() {
+                    public void run() {
+                        while (server.isClosed() == false) {
+                            try {
+                                Socket socket = server.accept();
+                                if (acquire(socket) == false) {
+                                    continue;
+                                }
+                                metrics.connection();
+                                Runnable release = release();
+                                try {
+                                    if (attach(tunnel, extras, index, socket, release) == false) {
+                                        PortForwardTunnel extra = PortForwardTunnel.open(client, context, context.getPorts(), metrics, relays, true);
+                                        extras.add(extra);
+                                        if (extra.attach(index, socket, release) == false) {
+                                            throw new IllegalStateException("New tunnel already closed: " + extra);
+                                        }
+                                    }
+                                } catch (IOException | RuntimeException e) {
+                                    doClose(socket);
+                                    connections.release();
+                                    log.warning(String.format("Cannot forward connection to port %s: %s", port, e));
+                                }
+                                for (PortForwardTunnel t : extras) {
+                                    if (t.isClosed()) {
+                                        extras.remove(t);
+                                    }
+                                }
+                            } catch (IOException e) {
+                                if (server.isClosed() == false) {
+                                    log.warning("Error: " + e.getMessage());
+                                }
+                            }
+                        }
+                    }
+                };
+
+                Thread thread = new Thread(acceptor, "ce-arq-portfwd-accept-" + port);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (IOException | RuntimeException e) {
+            for (ServerSocket server : servers) {
+                doClose(server);
+            }
+            tunnel.close();
+            throw e;
+        }
+
+        return new Handle() {
+            public InetAddress getInetAddress() {
+                return servers.get(0).getInetAddress();
+            }
+
+            public Metrics getMetrics() {
+                return metrics;
+            }
+
+            public void close() throws IOException {
+                log.info(String.format("Closing port forward %s", metrics));
+                for (ServerSocket server : servers) {
+                    doClose(server);
+                }
+                tunnel.close();
+                for (PortForwardTunnel extra : extras) {
+                    extra.close();
+                }
+            }
+        };
+    }
+
+    private static boolean attach(PortForwardTunnel tunnel, List<PortForwardTunnel> extras, int index, Socket socket, Runnable release) {
+        if (tunnel.attach(index, socket, release)) {
+            return true;
+        }
+        for (PortForwardTunnel extra : extras) {
+            if (extra.attach(index, socket, release)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take a connection slot, refusing the connection if all are in use -- keeps the relay threads bounded.
+     */
+    private static boolean acquire(Socket socket) {
+        if (connections.tryAcquire()) {
+            return true;
+        }
+        log.warning(String.format("Refusing port forward connection from %s, %s connections already open.", socket.getRemoteSocketAddress(), MAX_CONNECTIONS));
+        doClose(socket);
+        return false;
+    }
+
+    /**
+     * @return callback for both of a connection's relays, the slot is released once they are done
+     */
+    private static Runnable release() {
+        final AtomicInteger relaying = new AtomicInteger(2);
+        return new Runnable() {
+            public void run() {
+                if (relaying.decrementAndGet() == 0) {
+                    connections.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Copy with a buffer, flushing after every chunk -- protocols on top are interactive.
+     *
+     * @param firstSent if not null, set to the time of the first chunk copied
+     * @param firstByte if not null, notified of the first chunk copied
+     */
+    private static void relay(InputStream input, OutputStream output, Metrics metrics, boolean sent, AtomicLong firstSent, FirstByte firstByte) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (firstSent != null) {
+                firstSent.compareAndSet(0, System.nanoTime());
+            }
+            if (firstByte != null) {
+                firstByte.received();
+                firstByte = null;
+            }
+            output.write(buffer, 0, read);
+            output.flush();
+            if (sent) {
+                metrics.sent(read);
+            } else {
+                metrics.received(read);
+            }
+        }
+    }
+
     public interface Handle extends Closeable {
         InetAddress getInetAddress();
+
+        Metrics getMetrics();
+    }
+
+    /**
+     * Bytes relayed, and latency from a connection's first byte sent to its first byte received.
+     */
+    public static class Metrics {
+        private final AtomicLong connections = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final AtomicLong latencyCount = new AtomicLong();
+        private final AtomicLong latencyTotal = new AtomicLong();
+        private final AtomicLong latencyMax = new AtomicLong();
+
+        void connection() {
+            connections.incrementAndGet();
+        }
+
+        void sent(long bytes) {
+            bytesSent.addAndGet(bytes);
+        }
+
+        void received(long bytes) {
+            bytesReceived.addAndGet(bytes);
+        }
+
+        void latency(long nanos) {
+            latencyCount.incrementAndGet();
+            latencyTotal.addAndGet(nanos);
+            long max;
+            do {
+                max = latencyMax.get();
+            } while (nanos > max && latencyMax.compareAndSet(max, nanos) == false);
+        }
+
+        public long getConnections() {
+            return connections.get();
+        }
+
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        /**
+         * @return average first byte latency, in millis
+         */
+        public double getAverageLatency() {
+            long count = latencyCount.get();
+            return (count > 0) ? latencyTotal.get() / (count * 1000000.0) : 0.0;
+        }
+
+        /**
+         * @return max first byte latency, in millis
+         */
+        public double getMaxLatency() {
+            return latencyMax.get() / 1000000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[connections=%s, sent=%s, received=%s, latency avg=%.1fms max=%.1fms]", getConnections(), getBytesSent(), getBytesReceived(), getAverageLatency(), getMaxLatency());
+        }
+    }
+
+    static class FirstByte {
+        private final AtomicLong firstSent;
+        private final Metrics metrics;
+
+        FirstByte(AtomicLong firstSent, Metrics metrics) {
+            this.firstSent = firstSent;
+            this.metrics = metrics;
+        }
+
+        void received() {
+            long sent = firstSent.get();
+            if (sent > 0) {
+                metrics.latency(System.nanoTime() - sent);
+            }
+        }
     }
 
     private static void doClose(Closeable closeable) {
@@ -31,14 +31,17 @@ public class PortForwardContext {
     private final String nodeName;
     private final String namespace;
     private final String podName;
-    private final int port;
+    private final int[] ports;
 
-    public PortForwardContext(String kubernetesMaster, String nodeName, String namespace, String podName, int port) {
+    public PortForwardContext(String kubernetesMaster, String nodeName, String namespace, String podName, int... ports) {
+        if (ports.length == 0) {
+            throw new IllegalArgumentException("No ports to forward!");
+        }
         this.kubernetesMaster = kubernetesMaster;
         this.nodeName = nodeName;
         this.namespace = namespace;
         this.podName = podName;
-        this.port = port;
+        this.ports = ports;
     }
 
     public String getKubernetesMaster() {
@@ -58,6 +61,10 @@ public class PortForwardContext {
     }
 
     public int getPort() {
-        return port;
+        return ports[0];
+    }
+
+    public int[] getPorts() {
+        return ports.clone();
     }
 }
@@ -0,0 +1,580 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.portfwd;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.ByteString;
+
+/**
+ * Kubernetes port forward over a single WebSocket, speaking the v4 channel protocol:
+ * every forwarded port gets a data and an error channel, each binary message is prefixed
+ * with its channel byte, and the first message on every channel carries the port number.
+ * <p>
+ * The protocol carries one stream per port, so a tunnel serves one local connection per port.
+ * The read loop never blocks on a stream: one whose local connection falls behind by a full queue is closed.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class PortForwardTunnel implements Closeable {
+    private static final Logger log = Logger.getLogger(PortForwardTunnel.class.getName());
+
+    private static final String POD_PATH = "/api/v1/namespaces/%s/pods/%s";
+    private static final String PROTOCOL = "v4.channel.k8s.io";
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private static final int OP_CONTINUATION = 0x0;
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_CLOSE = 0x8;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+
+    private static final int MAX_FRAME = 16 * 1024;
+    private static final int QUEUE_SIZE = 64; // per stream, chunks in flight towards the local connection
+    private static final byte[] EOF = new byte[0];
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String name;
+    private final Closeable connection;
+    private final InputStream input;
+    private final OutputStream output;
+    private final Stream[] streams;
+    private final PortForward.Metrics metrics;
+    private final ExecutorService executor;
+    private final boolean closeWhenDone;
+    private final Random random = new SecureRandom();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    PortForwardTunnel(String name, Closeable connection, InputStream input, OutputStream output, int[] ports, PortForward.Metrics metrics, ExecutorService executor, boolean closeWhenDone) {
+        this.name = name;
+        this.connection = connection;
+        this.input = input;
+        this.output = output;
+        this.metrics = metrics;
+        this.executor = executor;
+        this.closeWhenDone = closeWhenDone;
+        this.streams = new Stream[ports.length];
+        for (int i = 0; i < ports.length; i++) {
+            streams[i] = new Stream(ports[i], 2 * i);
+        }
+    }
+
+    /**
+     * Upgrade a connection to the pod's portforward endpoint, forwarding all the ports.
+     *
+     * @param closeWhenDone close the tunnel once all its streams are done
+     */
+    static PortForwardTunnel open(OkHttpClient client, PortForwardContext context, int[] ports, PortForward.Metrics metrics, ExecutorService executor, boolean closeWhenDone) throws IOException {
+        HttpUrl master = HttpUrl.parse(context.getKubernetesMaster());
+        if (master == null) {
+            throw new IllegalArgumentException("Invalid Kubernetes master: " + context.getKubernetesMaster());
+        }
+        String path = String.format(POD_PATH, context.getNamespace(), context.getPodName());
+        String authorization = authorization(client, master.newBuilder().encodedPath(path).build());
+
+        Socket socket = connect(client, master);
+        try {
+            StringBuilder request = new StringBuilder("GET ").append(path).append("/portforward");
+            for (int i = 0; i < ports.length; i++) {
+                request.append(i == 0 ? "?" : "&").append("ports=").append(ports[i]);
+            }
+            String key = ByteString.of(randomBytes(16)).base64();
+            request.append(" HTTP/1.1\r\n");
+            request.append("Host: ").append(master.host()).append(":").append(master.port()).append("\r\n");
+            request.append("Upgrade: websocket\r\n");
+            request.append("Connection: Upgrade\r\n");
+            request.append("Sec-WebSocket-Key: ").append(key).append("\r\n");
+            request.append("Sec-WebSocket-Version: 13\r\n");
+            request.append("Sec-WebSocket-Protocol: ").append(PROTOCOL).append("\r\n");
+            if (authorization != null) {
+                request.append("Authorization: ").append(authorization).append("\r\n");
+            }
+            request.append("\r\n");
+            socket.getOutputStream().write(request.toString().getBytes("UTF-8"));
+            socket.getOutputStream().flush();
+
+            // our own buffered stream, so nothing the server sends right after the upgrade is lost
+            InputStream input = new BufferedInputStream(socket.getInputStream());
+            String status = readLine(input);
+            if (status.contains(" 101 ") == false) {
+                throw new IOException(String.format("Port forward upgrade to %s failed: %s", path, status));
+            }
+            String accept = null;
+            String line;
+            while ((line = readLine(input)).length() > 0) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && "Sec-WebSocket-Accept".equalsIgnoreCase(line.substring(0, colon).trim())) {
+                    accept = line.substring(colon + 1).trim();
+                }
+            }
+            if (ByteString.encodeUtf8(key + GUID).sha1().base64().equals(accept) == false) {
+                throw new IOException(String.format("Invalid WebSocket accept from %s: %s", path, accept));
+            }
+
+            PortForwardTunnel tunnel = new PortForwardTunnel(context.getPodName() + Arrays.toString(ports), socket, input, socket.getOutputStream(), ports, metrics, executor, closeWhenDone);
+            tunnel.start();
+            log.info(String.format("Opened port forward tunnel %s", tunnel));
+            return tunnel;
+        } catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    // authentication is applied by the client's interceptors, grab it from an authenticated request
+    private static String authorization(OkHttpClient client, HttpUrl url) throws IOException {
+        final String[] authorization = new String[1];
+        OkHttpClient probe = client.newBuilder().addNetworkInterceptor(new Interceptor() {
+            public Response intercept(Chain chain) throws IOException {
+                authorization[0] = chain.request().header("Authorization");
+                return chain.proceed(chain.request());
+            }
+        }).build();
+        Response response = probe.newCall(new Request.Builder().url(url).build()).execute();
+        response.body().close();
+        if (response.isSuccessful() == false) {
+            throw new IOException(String.format("Cannot access pod %s: %s", url, response.code()));
+        }
+        return authorization[0];
+    }
+
+    private static Socket connect(OkHttpClient client, HttpUrl url) throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(url.host(), url.port()), client.connectTimeoutMillis());
+        socket.setTcpNoDelay(true);
+        if (url.isHttps() == false) {
+            return socket;
+        }
+        SSLSocket ssl = (SSLSocket) client.sslSocketFactory().createSocket(socket, url.host(), url.port(), true);
+        ssl.startHandshake();
+        if (client.hostnameVerifier().verify(url.host(), ssl.getSession()) == false) {
+            ssl.close();
+            throw new SSLPeerUnverifiedException("Hostname not verified: " + url.host());
+        }
+        return ssl;
+    }
+
+    private static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("Connection closed during WebSocket upgrade");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString("UTF-8");
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new SecureRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    void start() {
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                readLoop();
+            }
+        }, "ce-arq-portfwd-tunnel-" + name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    boolean attach(int index, Socket local) {
+        return attach(index, local, null);
+    }
+
+    /**
+     * Bind a local connection to the stream of the port at index.
+     *
+     * @param relayDone if not null, run as each of the connection's two relays is done
+     * @return false if the stream is already taken
+     */
+    boolean attach(int index, Socket local, Runnable relayDone) {
+        return streams[index].attach(local, relayDone);
+    }
+
+    //--- WebSocket framing
+
+    private void readLoop() {
+        try {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            int opcode = OP_BINARY;
+            Frame frame;
+            while (closed.get() == false && (frame = Frame.read(input)) != null) {
+                if (frame.opcode == OP_CLOSE) {
+                    break;
+                } else if (frame.opcode == OP_PING) {
+                    send(OP_PONG, frame.payload);
+                    continue;
+                } else if (frame.opcode == OP_PONG) {
+                    continue;
+                }
+
+                if (frame.opcode != OP_CONTINUATION) {
+                    opcode = frame.opcode;
+                }
+                message.write(frame.payload);
+                if (frame.fin) {
+                    if (opcode == OP_BINARY) {
+                        dispatch(message.toByteArray());
+                    }
+                    message.reset();
+                }
+            }
+        } catch (IOException e) {
+            if (closed.get() == false) {
+                log.warning(String.format("Port forward tunnel %s failed: %s", this, e));
+            }
+        } finally {
+            close();
+        }
+    }
+
+    private void dispatch(byte[] message) {
+        if (message.length == 0) {
+            return;
+        }
+        int channel = message[0] & 0xFF;
+        int index = channel / 2;
+        if (index >= streams.length) {
+            log.warning(String.format("Unknown port forward channel %s on %s", channel, this));
+            return;
+        }
+        Stream stream = streams[index];
+        boolean data = (channel % 2 == 0);
+
+        int offset = 1;
+        if (data ? stream.dataPort.compareAndSet(false, true) : stream.errorPort.compareAndSet(false, true)) {
+            offset += 2; // first message on a channel is the port
+        }
+        if (message.length <= offset) {
+            return;
+        }
+
+        byte[] payload = Arrays.copyOfRange(message, offset, message.length);
+        if (data) {
+            stream.received(payload);
+        } else {
+            log.warning(String.format("Port forward error on port %s: %s", stream.port, new String(payload, UTF_8)));
+        }
+    }
+
+    private void sendData(int channel, byte[] buffer, int length) throws IOException {
+        for (int offset = 0; offset < length; offset += MAX_FRAME) {
+            int size = Math.min(MAX_FRAME, length - offset);
+            byte[] payload = new byte[size + 1];
+            payload[0] = (byte) channel;
+            System.arraycopy(buffer, offset, payload, 1, size);
+            send(OP_BINARY, payload);
+        }
+    }
+
+    // client frames are always masked
+    private synchronized void send(int opcode, byte[] payload) throws IOException {
+        byte[] mask = new byte[4];
+        random.nextBytes(mask);
+        output.write(Frame.encode(opcode, payload, mask));
+        output.flush();
+    }
+
+    // streams never attached don't keep the tunnel open, they're only spares for concurrent connections
+    private void streamDone() {
+        if (closeWhenDone) {
+            for (Stream stream : streams) {
+                if (stream.attached.get() && stream.done.get() == false) {
+                    return;
+                }
+            }
+            close();
+        }
+    }
+
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                send(OP_CLOSE, new byte[0]);
+            } catch (IOException ignored) {
+            }
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+            for (Stream stream : streams) {
+                stream.end();
+            }
+            log.info(String.format("Closed port forward tunnel %s", this));
+        }
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private class Stream {
+        private final int port;
+        private final int channel;
+        private final BlockingQueue<byte[]> incoming = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final AtomicBoolean attached = new AtomicBoolean();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final AtomicBoolean dataPort = new AtomicBoolean();
+        private final AtomicBoolean errorPort = new AtomicBoolean();
+        private final AtomicLong firstSent = new AtomicLong();
+        private final PortForward.FirstByte firstByte;
+        private volatile Socket local;
+
+        private Stream(int port, int channel) {
+            this.port = port;
+            this.channel = channel;
+            this.firstByte = new PortForward.FirstByte(firstSent, metrics);
+        }
+
+        /**
+         * Queue data for the local connection -- never blocks the tunnel, a full queue closes the stream.
+         */
+        private void received(byte[] payload) {
+            if (done.get() == false && incoming.offer(payload) == false) {
+                log.warning(String.format("Local connection to port %s on %s is too slow, closing it.", port, PortForwardTunnel.this));
+                Socket socket = local;
+                if (socket != null) {
+                    finish(socket);
+                } else if (done.compareAndSet(false, true)) {
+                    incoming.clear();
+                }
+                end();
+            }
+        }
+
+        private void end() {
+            if (incoming.offer(EOF) == false) {
+                incoming.clear();
+                incoming.offer(EOF);
+            }
+        }
+
+        private boolean attach(final Socket local, final Runnable relayDone) {
+            if (done.get() || attached.compareAndSet(false, true) == false || closed.get()) {
+                return false;
+            }
+            this.local = local;
+
+            // from the pod, to the local connection
+            executor.execute(new Runnable() {
+                public void run() {
+                    boolean first = true;
+                    try (OutputStream out = local.getOutputStream()) {
+                        byte[] bytes;
+                        while ((bytes = incoming.take()) != EOF) {
+                            if (first) {
+                                firstByte.received();
+                                first = false;
+                            }
+                            out.write(bytes);
+                            out.flush();
+                            metrics.received(bytes.length);
+                        }
+                    } catch (IOException ignored) {
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        finish(local);
+                        relayDone(relayDone);
+                    }
+                }
+            });
+
+            // from the local connection, to the pod
+            executor.execute(new Runnable() {
+                public void run() {
+                    byte[] buffer = new byte[MAX_FRAME];
+                    try (InputStream in = local.getInputStream()) {
+                        int read;
+                        while ((read = in.read(buffer)) != -1) {
+                            firstSent.compareAndSet(0, System.nanoTime());
+                            sendData(channel, buffer, read);
+                            metrics.sent(read);
+                        }
+                    } catch (IOException ignored) {
+                    } finally {
+                        // v4 channels can't be half-closed, local EOF ends the stream
+                        end();
+                        finish(local);
+                        relayDone(relayDone);
+                    }
+                }
+            });
+            return true;
+        }
+
+        private void relayDone(Runnable relayDone) {
+            if (relayDone != null) {
+                relayDone.run();
+            }
+        }
+
+        private void finish(Socket local) {
+            try {
+                local.close();
+            } catch (IOException ignored) {
+            }
+            if (done.compareAndSet(false, true)) {
+                incoming.clear();
+                streamDone();
+            }
+        }
+    }
+
+    /**
+     * A single WebSocket frame.
+     */
+    static class Frame {
+        final boolean fin;
+        final int opcode;
+        final byte[] payload;
+
+        private Frame(boolean fin, int opcode, byte[] payload) {
+            this.fin = fin;
+            this.opcode = opcode;
+            this.payload = payload;
+        }
+
+        /**
+         * @param mask the masking key, null for an unmasked frame
+         */
+        static byte[] encode(int opcode, byte[] payload, byte[] mask) {
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.length + 14);
+            frame.write(0x80 | opcode);
+            int masked = (mask != null) ? 0x80 : 0;
+            if (payload.length < 126) {
+                frame.write(masked | payload.length);
+            } else if (payload.length <= 0xFFFF) {
+                frame.write(masked | 126);
+                frame.write(payload.length >>> 8);
+                frame.write(payload.length & 0xFF);
+            } else {
+                frame.write(masked | 127);
+                for (int i = 7; i >= 0; i--) {
+                    frame.write((int) (((long) payload.length >>> (8 * i)) & 0xFF));
+                }
+            }
+            if (mask != null) {
+                frame.write(mask, 0, 4);
+                for (int i = 0; i < payload.length; i++) {
+                    frame.write(payload[i] ^ mask[i % 4]);
+                }
+            } else {
+                frame.write(payload, 0, payload.length);
+            }
+            return frame.toByteArray();
+        }
+
+        /**
+         * @return the next frame, unmasked, or null at the end of the stream
+         */
+        static Frame read(InputStream input) throws IOException {
+            int b0 = input.read();
+            if (b0 == -1) {
+                return null;
+            }
+            int b1 = readByte(input);
+
+            long length = b1 & 0x7F;
+            if (length == 126) {
+                length = (readByte(input) << 8) | readByte(input);
+            } else if (length == 127) {
+                length = 0;
+                for (int i = 0; i < 8; i++) {
+                    length = (length << 8) | readByte(input);
+                }
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("WebSocket frame too big: " + length);
+            }
+            byte[] mask = ((b1 & 0x80) != 0) ? readFully(input, 4) : null;
+            byte[] payload = readFully(input, (int) length);
+            if (mask != null) {
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i % 4];
+                }
+            }
+            return new Frame((b0 & 0x80) != 0, b0 & 0x0F, payload);
+        }
+
+        private static int readByte(InputStream input) throws IOException {
+            int b = input.read();
+            if (b == -1) {
+                throw new EOFException();
+            }
+            return b;
+        }
+
+        private static byte[] readFully(InputStream input, int length) throws IOException {
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int read = input.read(bytes, offset, length - offset);
+                if (read == -1) {
+                    throw new EOFException();
+                }
+                offset += read;
+            }
+            return bytes;
+        }
+    }
+}
@@ -23,16 +23,21 @@
 
 package org.jboss.arquillian.ce.proxy;
 
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.logging.Logger;
 
 import javax.net.ssl.SSLContext;
 
@@ -41,21 +46,31 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
 import org.jboss.arquillian.ce.api.ManagementHandle;
 import org.jboss.arquillian.ce.portfwd.PortForward;
+import org.jboss.arquillian.ce.utils.Checker;
 import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.Containers;
 import org.jboss.arquillian.ce.utils.ManagementHandleImpl;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public abstract class AbstractProxy<P> implements Proxy {
+    protected final Logger log = Logger.getLogger(getClass().getName());
+
     private static final String PROXY_URL = "%s/api/%s/namespaces/%s/pods/%s:%s/proxy%s";
     private static final String PROXY_URL_WITH_PROTOCOL = "%s/api/%s/namespaces/%s/pods/%s:%s:%s/proxy%s";
 
     private boolean sslContextSet;
     protected final Configuration configuration;
 
+    private final Map<Map<String, String>, PodCache<P>> caches = new HashMap<>();
+    private boolean watchSupported = true;
+    private boolean closed;
+
     public AbstractProxy(Configuration configuration) {
         this.configuration = configuration;
     }
@@ -91,8 +106,101 @@ public abstract class AbstractProxy<P> implements Proxy {
 
     protected abstract boolean isReady(P pod);
 
+    /**
+     * Watch pods matching labels.
+     * <p/>
+     * Impl should first list the pods, hand them over to watcher's resync,
+     * and then watch from the list's resourceVersion.
+     *
+     * @return watch handle, or null if watching is not supported
+     */
+    protected Closeable watchPods(Map<String, String> labels, PodWatcher<P> watcher) {
+        return null;
+    }
+
+    /**
+     * Get pod cache for labels; pod cache is per selector, as proxy is per namespace.
+     *
+     * @return pod cache or null if watching pods is not supported / failed
+     */
+    private PodCache<P> getPodCache(Map<String, String> labels) {
+        synchronized (caches) {
+            if (watchSupported == false || closed) {
+                return null;
+            }
+            PodCache<P> cache = caches.get(labels);
+            if (cache != null) {
+                return cache;
+            }
+        }
+
+        // starting the watch lists the pods, so don't hold up lookups on other selectors meanwhile
+        Map<String, String> key = Collections.unmodifiableMap(new HashMap<>(labels));
+        PodCache<P> cache = new PodCache<>(this, key);
+        try {
+            if (cache.start() == false) {
+                synchronized (caches) {
+                    if (watchSupported) {
+                        log.info("Watching pods is not supported, pods will be listed on every lookup.");
+                        watchSupported = false;
+                    }
+                }
+                return null;
+            }
+        } catch (RuntimeException e) {
+            log.warning(String.format("Cannot watch pods %s: %s", labels, e));
+            return null;
+        }
+
+        PodCache<P> existing;
+        synchronized (caches) {
+            existing = caches.get(key);
+            if (existing == null && closed == false) {
+                caches.put(key, cache);
+                return cache;
+            }
+        }
+        // someone else got there first, or we're closed
+        closeQuietly(cache);
+        return existing;
+    }
+
+    /**
+     * Existing pod cache for labels, without starting a watch.
+     */
+    private PodCache<P> findPodCache(Map<String, String> labels) {
+        synchronized (caches) {
+            return caches.get(labels);
+        }
+    }
+
+    private static void closeQuietly(PodCache<?> cache) {
+        try {
+            cache.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Pods matching labels, sorted by name; from the pod cache if we can watch pods.
+     */
+    protected List<P> getCachedPods(Map<String, String> labels) {
+        PodCache<P> cache = getPodCache(labels);
+        if (cache != null) {
+            return cache.getPods();
+        } else {
+            List<P> pods = new ArrayList<>(getPods(labels));
+            Collections.sort(pods, new Comparator<P>() {
+                public int compare(P p1, P p2) {
+                    return getName(p1).compareTo(getName(p2));
+                }
+            });
+            return pods;
+        }
+    }
+
     public String url(Map<String, String> labels, int index, int port, String path, String parameters) {
-        List<P> items = getPods(labels);
+        List<P> items = getCachedPods(labels);
         if (index >= items.size()) {
             throw new IllegalStateException(String.format("Not enough pods (%s) to invoke pod index %s!", items.size(), index));
         }
@@ -101,7 +209,15 @@ public abstract class AbstractProxy<P> implements Proxy {
         return url(pod, port, path, parameters);
     }
 
+    /**
+     * Ready pods matching labels; from an existing pod cache, else listed -- a one-off lookup doesn't start a watch.
+     */
     public Set<String> getReadyPods(Map<String, String> labels) {
+        PodCache<P> cache = findPodCache(labels);
+        if (cache != null) {
+            return cache.getReadyPods();
+        }
+
         Set<String> names = new TreeSet<>();
         List<P> pods = getPods(labels);
         for (P pod : pods) {
@@ -112,8 +228,51 @@ public abstract class AbstractProxy<P> implements Proxy {
         return names;
     }
 
+    /**
+     * Wait for ready pods matching labels; a watch started just for this wait is closed when it finishes.
+     */
+    public void awaitReadyPods(final Map<String, String> labels, final ReadyPodsCondition condition) throws Exception {
+        boolean adHoc = findPodCache(labels) == null;
+        try {
+            doAwaitReadyPods(labels, condition);
+        } finally {
+            if (adHoc) {
+                evictPods(labels);
+            }
+        }
+    }
+
+    private void doAwaitReadyPods(final Map<String, String> labels, final ReadyPodsCondition condition) throws Exception {
+        PodCache<P> cache = getPodCache(labels);
+        if (cache != null) {
+            log.info(String.format("Watching pods [%s], timeout: %ss", condition, configuration.getStartupTimeout()));
+            final long deadline = System.currentTimeMillis() + configuration.getStartupTimeout() * 1000;
+            do {
+                if (cache.await(condition, deadline - System.currentTimeMillis())) {
+                    return;
+                }
+                if (cache.isClosed() == false) {
+                    throw new IllegalStateException(String.format("Checker [%s] failed to pass.", condition));
+                }
+                // evicted while we waited, e.g. by an undeploy -- carry on with a fresh cache
+            } while ((cache = getPodCache(labels)) != null);
+        }
+
+        // no watch support, fall back to polling
+        Containers.delay(configuration.getStartupTimeout(), 4000L, new Checker() {
+            public boolean check() {
+                return condition.check(getReadyPods(labels));
+            }
+
+            @Override
+            public String toString() {
+                return condition.toString();
+            }
+        });
+    }
+
     public String findPod(Map<String, String> labels, int index) {
-        List<P> items = getPods(labels);
+        List<P> items = getCachedPods(labels);
         if (index >= items.size()) {
             throw new IllegalStateException(String.format("Not enough pods (%s) to invoke pod index %s!", items, index));
         } else {
@@ -130,40 +289,35 @@ public abstract class AbstractProxy<P> implements Proxy {
         builder.url(url);
 
         if (requestObject != null) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-                oos.writeObject(requestObject);
-                oos.flush();
-            } catch (Exception e) {
-                throw new RuntimeException("Error sending request Object, " + requestObject, e);
-            }
-            RequestBody body = RequestBody.create(MediaType.parse("application/octet-stream"), baos.toByteArray());
-            builder.post(body);
+            builder.post(new SerializedObjectRequestBody(requestObject));
         }
 
         Request request = builder.build();
         Response response = httpClient.newCall(request).execute();
 
-        int responseCode = response.code();
-
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            Object o;
-            try (ObjectInputStream ois = new ObjectInputStream(response.body().byteStream())) {
-                o = ois.readObject();
+        // always close the body, so the connection goes back to the pool
+        try (ResponseBody body = response.body()) {
+            int responseCode = response.code();
+
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                Object o;
+                try (ObjectInputStream ois = new ObjectInputStream(body.byteStream())) {
+                    o = ois.readObject();
+                }
+
+                if (returnType.isInstance(o) == false) {
+                    throw new IllegalStateException("Error reading results, expected a " + returnType.getName() + " but got " + o);
+                }
+
+                return returnType.cast(o);
+            } else if (responseCode == HttpURLConnection.HTTP_NO_CONTENT) {
+                return null;
+            } else if (responseCode != HttpURLConnection.HTTP_NOT_FOUND) {
+                throw new IllegalStateException("Error launching test at " + url + ". Got " + responseCode + " (" + response.message() + ")");
             }
 
-            if (returnType.isInstance(o) == false) {
-                throw new IllegalStateException("Error reading results, expected a " + returnType.getName() + " but got " + o);
-            }
-
-            return returnType.cast(o);
-        } else if (responseCode == HttpURLConnection.HTTP_NO_CONTENT) {
-            return null;
-        } else if (responseCode != HttpURLConnection.HTTP_NOT_FOUND) {
-            throw new IllegalStateException("Error launching test at " + url + ". Got " + responseCode + " (" + response.message() + ")");
+            return null; // TODO
         }
-
-        return null; // TODO
     }
 
     public InputStream post(String url, String encoding, byte[] bytes) throws IOException {
@@ -197,14 +351,62 @@ public abstract class AbstractProxy<P> implements Proxy {
         return post(url, "", null);
     }
 
+    public void evictPods(Map<String, String> labels) {
+        PodCache<P> cache;
+        synchronized (caches) {
+            cache = caches.remove(labels);
+        }
+        if (cache != null) {
+            closeQuietly(cache);
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (caches) {
+            closed = true;
+            for (PodCache<P> cache : caches.values()) {
+                cache.close();
+            }
+            caches.clear();
+        }
+    }
+
     public int status(String url) {
         try {
             OkHttpClient httpClient = getHttpClient();
             Request request = new Request.Builder().url(url).build();
             Response response = httpClient.newCall(request).execute();
+            response.body().close();
             return response.code();
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
     }
+
+    /**
+     * Serialize request object straight into the request stream.
+     */
+    private static class SerializedObjectRequestBody extends RequestBody {
+        private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+        private final Object requestObject;
+
+        private SerializedObjectRequestBody(Object requestObject) {
+            this.requestObject = requestObject;
+        }
+
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        public void writeTo(BufferedSink sink) throws IOException {
+            ObjectOutputStream oos = new ObjectOutputStream(sink.outputStream());
+            try {
+                oos.writeObject(requestObject);
+            } catch (Exception e) {
+                throw new IOException("Error sending request Object, " + requestObject, e);
+            }
+            oos.flush();
+        }
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * Informer-style cache of pods matching a label selector, fed by a watch.
+ * <p/>
+ * We only list on first access, or when re-syncing -- when the watch drops,
+ * or we don't see any event for a while while waiting on some condition.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class PodCache<P> implements Closeable {
+    private static final Logger log = Logger.getLogger(PodCache.class.getName());
+
+    private static final long RESYNC_PERIOD = 30 * 1000L;
+
+    private final AbstractProxy<P> proxy;
+    private final Map<String, String> labels;
+    private final Map<String, P> pods = new TreeMap<>(); // sorted by name, for deterministic order
+
+    private Subscription current;
+    private boolean closed;
+
+    PodCache(AbstractProxy<P> proxy, Map<String, String> labels) {
+        this.proxy = proxy;
+        this.labels = labels;
+    }
+
+    /**
+     * @return true if watch was established, false if watching is not supported
+     */
+    synchronized boolean start() {
+        Subscription subscription = new Subscription();
+        current = subscription;
+        try {
+            subscription.watch = proxy.watchPods(labels, subscription);
+        } finally {
+            if (subscription.watch == null) {
+                current = null;
+            }
+        }
+        return (current != null);
+    }
+
+    synchronized List<P> getPods() {
+        if (current == null && closed == false) {
+            subscribe(); // watch dropped, re-sync
+        }
+        return new ArrayList<>(pods.values());
+    }
+
+    synchronized Set<String> getReadyPods() {
+        if (current == null && closed == false) {
+            subscribe(); // watch dropped, re-sync
+        }
+        Set<String> names = new TreeSet<>();
+        for (Map.Entry<String, P> entry : pods.entrySet()) {
+            if (proxy.isReady(entry.getValue())) {
+                names.add(entry.getKey());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Block until the condition holds on ready pods.
+     *
+     * @param condition the condition
+     * @param timeout   timeout in millis
+     * @return true if condition holds, false on timeout or once the cache is closed
+     */
+    synchronized boolean await(ReadyPodsCondition condition, long timeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        while (true) {
+            if (closed) {
+                return false;
+            }
+
+            if (condition.check(getReadyPods())) {
+                return true;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+
+            long start = System.currentTimeMillis();
+            wait(Math.min(remaining, RESYNC_PERIOD));
+
+            if (current != null && System.currentTimeMillis() - start >= RESYNC_PERIOD) {
+                unsubscribe(); // no news for a while, make sure we're not stuck on a stale watch
+            }
+        }
+    }
+
+    private void subscribe() {
+        Subscription subscription = new Subscription();
+        current = subscription;
+        try {
+            subscription.watch = proxy.watchPods(labels, subscription);
+        } catch (RuntimeException e) {
+            log.warning(String.format("Cannot watch pods %s: %s", labels, e));
+        }
+        if (subscription.watch == null) {
+            current = null;
+        }
+    }
+
+    private void unsubscribe() {
+        Subscription subscription = current;
+        current = null;
+        if (subscription != null && subscription.watch != null) {
+            try {
+                subscription.watch.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized void close() throws IOException {
+        closed = true;
+        unsubscribe();
+        pods.clear();
+        notifyAll(); // release waiters
+    }
+
+    private class Subscription implements PodWatcher<P> {
+        private Closeable watch;
+
+        public void resync(List<P> items) {
+            synchronized (PodCache.this) {
+                if (current == this) {
+                    pods.clear();
+                    for (P pod : items) {
+                        pods.put(proxy.getName(pod), pod);
+                    }
+                    PodCache.this.notifyAll();
+                }
+            }
+        }
+
+        public void modified(P pod) {
+            synchronized (PodCache.this) {
+                if (current == this) {
+                    pods.put(proxy.getName(pod), pod);
+                    PodCache.this.notifyAll();
+                }
+            }
+        }
+
+        public void deleted(P pod) {
+            synchronized (PodCache.this) {
+                if (current == this) {
+                    pods.remove(proxy.getName(pod));
+                    PodCache.this.notifyAll();
+                }
+            }
+        }
+
+        public void closed(Throwable cause) {
+            synchronized (PodCache.this) {
+                if (current == this && closed == false) {
+                    log.info(String.format("Pod watch on %s dropped [%s], re-syncing ...", labels, cause));
+                    current = null;
+                    PodCache.this.notifyAll();
+                }
+            }
+        }
+    }
+}
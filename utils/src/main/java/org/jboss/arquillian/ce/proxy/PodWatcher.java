@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.util.List;
+
+/**
+ * Pod watch callback.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public interface PodWatcher<P> {
+    /**
+     * Full state, as listed at the watch's starting resourceVersion.
+     *
+     * @param pods current pods
+     */
+    void resync(List<P> pods);
+
+    /**
+     * Pod was added or modified.
+     *
+     * @param pod the pod
+     */
+    void modified(P pod);
+
+    /**
+     * Pod was deleted.
+     *
+     * @param pod the pod
+     */
+    void deleted(P pod);
+
+    /**
+     * Watch was closed / dropped by the server.
+     *
+     * @param cause the cause, can be null
+     */
+    void closed(Throwable cause);
+}
@@ -23,6 +23,7 @@
 
 package org.jboss.arquillian.ce.proxy;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.util.Map;
 import java.util.Set;
@@ -35,7 +36,7 @@ import org.jboss.arquillian.ce.portfwd.PortForward;
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
-public interface Proxy {
+public interface Proxy extends Closeable {
     ManagementHandle createManagementHandle(Map<String, String> labels);
 
     SSLContext getSSLContext();
@@ -52,6 +53,11 @@ public interface Proxy {
 
     Set<String> getReadyPods(Map<String, String> labels);
 
+    /**
+     * Wait, up to startup timeout, for ready pods matching labels to satisfy the condition.
+     */
+    void awaitReadyPods(Map<String, String> labels, ReadyPodsCondition condition) throws Exception;
+
     <T> T post(String url, Class<T> returnType, Object requestObject) throws Exception;
 
     InputStream post(String url, String encoding, byte[] bytes) throws Exception;
@@ -63,4 +69,9 @@ public interface Proxy {
     int status(String url);
 
     String findPod(Map<String, String> labels, int index);
+
+    /**
+     * Stop tracking pods matching labels, e.g. once they're undeployed.
+     */
+    void evictPods(Map<String, String> labels);
 }
@@ -24,13 +24,25 @@
 package org.jboss.arquillian.ce.resources;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.jboss.arquillian.ce.adapter.OpenShiftAdapter;
 import org.jboss.arquillian.ce.api.AddRoleToServiceAccount;
@@ -41,10 +53,13 @@ import org.jboss.arquillian.ce.api.RoleBinding;
 import org.jboss.arquillian.ce.api.RoleBindings;
 import org.jboss.arquillian.ce.api.Template;
 import org.jboss.arquillian.ce.api.TemplateResources;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 import org.jboss.arquillian.ce.utils.StringResolver;
 import org.jboss.arquillian.ce.utils.Strings;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.Node;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
@@ -62,37 +77,46 @@ public class OpenShiftResourceFactory {
     private static final ARSAFinder ARSA_FINDER = new ARSAFinder();
     private static final TEMPFinder TEMP_FINDER = new TEMPFinder();
 
-    public static void createResources(String resourcesKey, OpenShiftAdapter adapter, Archive<?> archive, Class<?> testClass, Properties properties) {
+    private static final int RANK_REFERENCED = 0;
+    private static final int RANK_BINDINGS = 1;
+    private static final int RANK_OTHER = 2;
+    private static final int RANK_CONTROLLERS = 3;
+
+    private static final Pattern YAML_KIND = Pattern.compile("^kind:\\s*[\"']?(\\w+)", Pattern.MULTILINE);
+
+    private static final int CREATE_THREADS = Integer.parseInt(Strings.getSystemPropertyOrEnvVar("resources.create.threads", "8"));
+    private static final ExecutorService executor = Executors.newFixedThreadPool(CREATE_THREADS, new DaemonThreadFactory("ce-arq-resources"));
+
+    public static void createResources(final String resourcesKey, final OpenShiftAdapter adapter, final Archive<?> archive, final Class<?> testClass, Properties properties) {
         try {
             final StringResolver resolver = Strings.createStringResolver(properties);
 
             List<OpenShiftResource> openShiftResources = new ArrayList<>();
             OSR_FINDER.findAnnotations(openShiftResources, testClass);
+
+            // fetch all sources up front, remote ones concurrently
+            List<Future<byte[]>> sources = new ArrayList<>();
+            final List<String> files = new ArrayList<>();
             for (OpenShiftResource osr : openShiftResources) {
-                String file = resolver.resolve(osr.value());
-
-                InputStream stream;
-                if (file.startsWith(URL_PREFIX)) {
-                    stream = new URL(file).openStream();
-                } else if (file.startsWith(CLASSPATH_PREFIX)) {
-                    String resourceName = file.substring(CLASSPATH_PREFIX.length());
-                    stream = testClass.getClassLoader().getResourceAsStream(resourceName);
-                    if (stream == null) {
-                        throw new IllegalArgumentException("Could not find resource on classpath: " + resourceName);
+                final String file = resolver.resolve(osr.value());
+                files.add(file);
+                sources.add(executor.submit(new Callable<byte[]>() {
+                    public byte[] call() throws Exception {
+                        return read(openStream(file, archive, testClass));
                     }
-                } else if (file.startsWith(ARCHIVE_PREFIX)) {
-                    String resourceName = file.substring(ARCHIVE_PREFIX.length());
-                    Node node = archive.get(resourceName);
-                    if (node == null) {
-                        throw new IllegalArgumentException("Could not find resource in Arquillian archive: " + resourceName);
-                    }
-                    stream = node.getAsset().openStream();
-                } else {
-                    stream = new ByteArrayInputStream(file.getBytes());
-                }
+                }));
+            }
 
-                log.info(String.format("Creating new OpenShift resource: %s", file));
-                adapter.createResource(resourcesKey, stream);
+            SortedMap<Integer, List<Callable<Object>>> stages = new TreeMap<>();
+            for (int i = 0; i < files.size(); i++) {
+                final String file = files.get(i);
+                final byte[] content = get(sources.get(i));
+                addStage(stages, rank(content), new Callable<Object>() {
+                    public Object call() throws Exception {
+                        log.info(String.format("Creating new OpenShift resource: %s", file));
+                        return adapter.createResource(resourcesKey, new ByteArrayInputStream(content));
+                    }
+                });
             }
 
             List<RoleBinding> roleBindings = new ArrayList<>();
@@ -100,8 +124,8 @@ public class OpenShiftResourceFactory {
             for (RoleBinding rb : roleBindings) {
                 String roleRefName = resolver.resolve(rb.roleRefName());
                 String userName = resolver.resolve(rb.userName());
-                log.info(String.format("Adding new role binding: %s / %s", roleRefName, userName));
-                adapter.addRoleBinding(resourcesKey, roleRefName, userName);
+                addStage(stages, RANK_BINDINGS, roleBinding(adapter, resourcesKey, roleRefName, userName,
+                    String.format("Adding new role binding: %s / %s", roleRefName, userName)));
             }
 
             List<AddRoleToServiceAccount> arsaBindings = new ArrayList<>();
@@ -110,14 +134,161 @@ public class OpenShiftResourceFactory {
                 String role = resolver.resolve(arsa.role());
                 String saPattern = String.format("system:serviceaccount:${kubernetes.namespace}:%s", arsa.serviceAccount());
                 String serviceAccount = resolver.resolve(saPattern);
-                log.info(String.format("Adding role %s to service account %s", role, serviceAccount));
-                adapter.addRoleBinding(resourcesKey, role, serviceAccount);
+                addStage(stages, RANK_BINDINGS, roleBinding(adapter, resourcesKey, role, serviceAccount,
+                    String.format("Adding role %s to service account %s", role, serviceAccount)));
+            }
+
+            // objects within a stage are independent, a stage only starts once the previous one is created
+            for (List<Callable<Object>> stage : stages.values()) {
+                for (Future<Object> future : executor.invokeAll(stage)) {
+                    get(future);
+                }
             }
         } catch (Exception e) {
             throw new IllegalStateException(e);
         }
     }
 
+    private static InputStream openStream(String file, Archive<?> archive, Class<?> testClass) throws IOException {
+        if (file.startsWith(URL_PREFIX)) {
+            return new URL(file).openStream();
+        } else if (file.startsWith(CLASSPATH_PREFIX)) {
+            String resourceName = file.substring(CLASSPATH_PREFIX.length());
+            InputStream stream = testClass.getClassLoader().getResourceAsStream(resourceName);
+            if (stream == null) {
+                throw new IllegalArgumentException("Could not find resource on classpath: " + resourceName);
+            }
+            return stream;
+        } else if (file.startsWith(ARCHIVE_PREFIX)) {
+            String resourceName = file.substring(ARCHIVE_PREFIX.length());
+            Node node = archive.get(resourceName);
+            if (node == null) {
+                throw new IllegalArgumentException("Could not find resource in Arquillian archive: " + resourceName);
+            }
+            return node.getAsset().openStream();
+        } else {
+            return new ByteArrayInputStream(file.getBytes());
+        }
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                baos.write(buffer, 0, n);
+            }
+            return baos.toByteArray();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private static Callable<Object> roleBinding(final OpenShiftAdapter adapter, final String resourcesKey, final String roleRefName, final String userName, final String msg) {
+        return new Callable<Object>() {
+            public Object call() throws Exception {
+                log.info(msg);
+                return adapter.addRoleBinding(resourcesKey, roleRefName, userName);
+            }
+        };
+    }
+
+    private static void addStage(SortedMap<Integer, List<Callable<Object>>> stages, int rank, Callable<Object> task) {
+        List<Callable<Object>> stage = stages.get(rank);
+        if (stage == null) {
+            stage = new ArrayList<>();
+            stages.put(rank, stage);
+        }
+        stage.add(task);
+    }
+
+    private static <T> T get(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * Top level kind of a JSON or YAML resource, or null if it cannot be determined.
+     */
+    static String kind(byte[] content) {
+        JSONObject json = json(content);
+        if (json != null) {
+            Object kind = json.get("kind");
+            return (kind != null) ? kind.toString() : null;
+        }
+        Matcher matcher = YAML_KIND.matcher(new String(content, StandardCharsets.UTF_8));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Stage of a resource; a List is created as a whole, so it goes with its earliest item,
+     * or first if its items cannot be read (YAML).
+     */
+    static int rank(byte[] content) {
+        String kind = kind(content);
+        if ("List".equals(kind) == false) {
+            return rank(kind);
+        }
+        JSONObject json = json(content);
+        Object items = (json != null) ? (json.containsKey("items") ? json.get("items") : json.get("objects")) : null;
+        if (items instanceof List == false || ((List<?>) items).isEmpty()) {
+            return RANK_REFERENCED;
+        }
+        int rank = RANK_CONTROLLERS;
+        for (Object item : (List<?>) items) {
+            Object itemKind = (item instanceof JSONObject) ? ((JSONObject) item).get("kind") : null;
+            rank = Math.min(rank, rank(itemKind != null ? itemKind.toString() : null));
+        }
+        return rank;
+    }
+
+    private static JSONObject json(byte[] content) {
+        String text = new String(content, StandardCharsets.UTF_8).trim();
+        if (text.startsWith("{")) {
+            try {
+                return (JSONObject) new JSONParser().parse(text);
+            } catch (Exception ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creation order: accounts, secrets, roles and other referenced objects first,
+     * then role bindings, then services, and controllers last.
+     */
+    static int rank(String kind) {
+        if (kind == null) {
+            return RANK_OTHER;
+        }
+        switch (kind) {
+            case "ServiceAccount":
+            case "Secret":
+            case "ConfigMap":
+            case "PersistentVolumeClaim":
+            case "ImageStream":
+            case "Role":
+            case "ClusterRole":
+            case "List":
+                return RANK_REFERENCED;
+            case "RoleBinding":
+            case "PolicyBinding":
+                return RANK_BINDINGS;
+            case "DeploymentConfig":
+            case "BuildConfig":
+            case "ReplicationController":
+            case "Pod":
+                return RANK_CONTROLLERS;
+            default:
+                return RANK_OTHER;
+        }
+    }
+
     /**
      * Aggregates a list of templates specified by @Template
      */
@@ -146,6 +317,15 @@ public class OpenShiftResourceFactory {
         }
     }
 
+    /**
+     * Returns true if templates are to be instantiated concurrently.
+     */
+    public static boolean concurrentInstantiation(Class<?> testClass) {
+        List<Template> templates = new ArrayList<>();
+        TemplateResources tr = TEMP_FINDER.findAnnotations(templates, testClass);
+        return tr != null && tr.concurrentInstantiation();
+    }
+
     public static void deleteResources(String resourcesKey, OpenShiftAdapter adapter) {
         try {
             adapter.deleteResources(resourcesKey);
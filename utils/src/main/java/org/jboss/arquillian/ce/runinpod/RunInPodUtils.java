@@ -27,7 +27,7 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 
@@ -40,6 +40,7 @@ import org.jboss.arquillian.ce.spi.WildFlySPIConfiguration;
 import org.jboss.arquillian.ce.spi.WildFlySPIContainer;
 import org.jboss.arquillian.ce.utils.Archives;
 import org.jboss.arquillian.ce.utils.Configuration;
+import org.jboss.arquillian.ce.utils.DaemonThreadFactory;
 import org.jboss.arquillian.ce.utils.ParallelHandler;
 import org.jboss.arquillian.ce.utils.ReflectionUtils;
 import org.jboss.arquillian.ce.utils.Strings;
@@ -74,7 +75,8 @@ public class RunInPodUtils {
     private final ProtocolRegistry protocolRegistry;
     private final TestClass testClass;
 
-    private final Executor executor = Executors.newSingleThreadExecutor();
+    // shared, daemon and idle threads expire -- a new RunInPodUtils is created per deployment
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("ce-arq-runinpod"));
 
     public RunInPodUtils(DeployableContainer<?> container, ServiceLoader serviceLoader, ProtocolRegistry protocolRegistry, TestClass testClass) {
         this.container = container;
@@ -112,7 +114,7 @@ public class RunInPodUtils {
                 try {
                     container.deploy();
                 } catch (Throwable error) {
-                    parallelHandler.errorInSPI(error);
+                    parallelHandler.fail(ParallelHandler.RUN_IN_POD, error);
                     throw new IllegalStateException(error);
                 }
             }
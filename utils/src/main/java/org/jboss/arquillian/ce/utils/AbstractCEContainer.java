@@ -29,6 +29,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.jboss.arquillian.ce.adapter.DockerAdapter;
@@ -36,6 +40,7 @@ import org.jboss.arquillian.ce.adapter.DockerAdapterContext;
 import org.jboss.arquillian.ce.adapter.DockerAdapterImpl;
 import org.jboss.arquillian.ce.adapter.OpenShiftAdapter;
 import org.jboss.arquillian.ce.adapter.OpenShiftAdapterFactory;
+import org.jboss.arquillian.ce.adapter.PushMetrics;
 import org.jboss.arquillian.ce.api.ConfigurationHandle;
 import org.jboss.arquillian.ce.api.MountSecret;
 import org.jboss.arquillian.ce.proxy.Proxy;
@@ -96,6 +101,9 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
     protected T configuration;
     protected OpenShiftAdapter client;
     protected DockerAdapter dockerAdapter;
+    private TeardownQueue teardowns;
+    private ProjectPool projectPool;
+    private final Map<String, Map<String, String>> deployedLabels = new ConcurrentHashMap<>(); // pod selectors, evicted on undeploy
     protected Proxy proxy;
     protected boolean shouldRemoveProject;
 
@@ -142,6 +150,7 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
 
     public void start() throws LifecycleException {
         client = OpenShiftAdapterFactory.getOpenShiftAdapter(configuration);
+        checkAdapter(client);
         if (openShiftAdapterProducer != null) {
             openShiftAdapterProducer.set(client);
         }
@@ -156,10 +165,31 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
         }
         dockerAdapter = new DockerAdapterImpl(configuration, lookup);
 
+        if (configuration.isAsyncUndeploy()) {
+            teardowns = new TeardownQueue(configuration.getUndeployConcurrency());
+        }
+
         String namespace = configuration.getNamespace();
+        if (configuration.isGeneratedNS() && configuration.getProjectPoolSize() > 0) {
+            projectPool = new ProjectPool(client, configuration);
+            try {
+                namespace = projectPool.lease();
+            } catch (Exception e) {
+                throw new LifecycleException("Cannot lease pooled project.", e);
+            }
+            configuration.setNamespace(namespace);
+        }
         log.info("Using Kubernetes namespace / project: " + namespace);
 
-        shouldRemoveProject = client.checkProject(); // create project, if it doesn't exist yet
+        if (projectPool == null) {
+            shouldRemoveProject = client.checkProject(); // create project, if it doesn't exist yet
+        }
+    }
+
+    /**
+     * Fail fast on configuration the adapter cannot handle, before any project or resource is created.
+     */
+    protected void checkAdapter(OpenShiftAdapter adapter) throws LifecycleException {
     }
 
     public void stop() throws LifecycleException {
@@ -169,8 +199,19 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
             }
         } finally {
             try {
-                if (shouldRemoveProject && configuration.performCleanup()) {
-                    client.deleteProject();
+                try {
+                    flushTeardowns();
+                } finally {
+                    if (projectPool != null) {
+                        if (configuration.performCleanup()) {
+                            projectPool.release(configuration.getNamespace());
+                        } else {
+                            log.info(String.format("Ignore cleanup -- pooled project %s is taken out of the pool.", configuration.getNamespace()));
+                            projectPool.keep(configuration.getNamespace());
+                        }
+                    } else if (shouldRemoveProject && configuration.performCleanup()) {
+                        client.deleteProject();
+                    }
                 }
             } finally {
                 try {
@@ -192,6 +233,20 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
         }
     }
 
+    private void flushTeardowns() throws LifecycleException {
+        if (teardowns != null) {
+            try {
+                teardowns.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IllegalStateException e) {
+                throw new LifecycleException("Error in background undeploy.", e);
+            } finally {
+                teardowns = null;
+            }
+        }
+    }
+
     protected abstract ProtocolMetaData doDeploy(Archive<?> archive) throws DeploymentException;
 
     protected RunInPodContainer create() {
@@ -229,26 +284,33 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
     }
 
     public ProtocolMetaData deploy(Archive<?> archive) throws DeploymentException {
-        try {
-            return deployInternal(archive);
-        } finally {
-            // reset parallel handler
-            if (isSPI()) {
-                parallelHandler.clearSPI();
-            } else if (runInPodContainer != null) {
-                parallelHandler.clearMain();
+        if (teardowns != null) {
+            // same archive name means same image mappings
+            try {
+                teardowns.await(archive.getName());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DeploymentException("Interrupted waiting for previous teardown.", e);
             }
         }
-    }
 
-    private ProtocolMetaData deployInternal(Archive<?> archive) throws DeploymentException {
         dockerAdapter.prepare(archive);
 
+        if (teardowns != null) {
+            // template objects and resources have fixed names, shared across archives -- only the image build overlaps a teardown
+            try {
+                teardowns.awaitAll();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DeploymentException("Interrupted waiting for pending teardowns.", e);
+            }
+        }
+
         handleResources(archive);
 
         handleRunInPod();
         if (runInPodContainer != null && !isSPI()) {
-            parallelHandler.initMain();
+            parallelHandler.reset();
             runInPodUtils.parallelize(runInPodContainer, parallelHandler);
         }
 
@@ -256,40 +318,38 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
         try {
             protocolMetaData = doDeploy(archive);
         } catch (Exception e) {
-            if (!isSPI()) {
-                parallelHandler.errorInMain(e);
-            }
+            parallelHandler.fail(getStageOwner(), e);
 
             undeploy(archive); // try to cleanup
 
             throw e;
         }
 
-        if (isSPI()) {
-            // resume SPI since it is ready -- Main can move on
-            parallelHandler.resumeOnSPI();
+        for (DeploymentContext context : protocolMetaData.getContexts(DeploymentContext.class)) {
+            deployedLabels.put(archive.getName(), context.getLabels());
         }
 
+        parallelHandler.complete(getStageOwner(), ParallelHandler.Stage.RESOURCES); // in case doDeploy didn't say so
+        parallelHandler.complete(getStageOwner(), ParallelHandler.Stage.READY);
+
         if (runInPodContainer != null && !isSPI()) {
-            // reset
-            parallelHandler.initSPI();
-            // wait for runinpod to finish
-            parallelHandler.waitOnSPI();
-
-            // check if we got some error in SPI / parallel handling
-            Throwable error = parallelHandler.getErrorFromSPI();
-            if (error != null) {
-                if (error instanceof DeploymentException) {
-                    throw DeploymentException.class.cast(error);
-                } else {
-                    throw new DeploymentException("Error in SPI deployment.", error);
-                }
+            // wait for runinpod to finish, and check if we got some error in SPI
+            try {
+                parallelHandler.await(ParallelHandler.RUN_IN_POD, ParallelHandler.Stage.READY, configuration.getStageTimeout());
+            } catch (DeploymentException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new DeploymentException("Error in SPI deployment.", e);
             }
         }
 
         return protocolMetaData;
     }
 
+    private String getStageOwner() {
+        return isSPI() ? ParallelHandler.RUN_IN_POD : ParallelHandler.MAIN;
+    }
+
     public ProtocolDescription getDefaultProtocol() {
         return new ProtocolDescription(Constants.PROTOCOL_NAME);
     }
@@ -332,22 +392,19 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
         InputStream dockerfileTemplate = getDockerTemplate();
 
         DockerAdapterContext context = new DockerAdapterContext(this, dockerfileTemplate, archive, properties, isSPI() ? "spi-" : "");
-        return dockerAdapter.buildAndPushImage(context);
+        String imageName = dockerAdapter.buildAndPushImage(context);
+        PushMetrics metrics = dockerAdapter.getPushMetrics(archive);
+        if (metrics != null) {
+            log.info(metrics.toString());
+        }
+        parallelHandler.complete(getStageOwner(), ParallelHandler.Stage.IMAGE);
+        return imageName;
     }
 
     protected String deployResourceContext(RCContext context) throws Exception {
-        // wait for Main to finish, if we're @RunInPod container
+        // wait for Main to push its k8s/ose config, if we're @RunInPod container
         if (isSPI()) {
-            parallelHandler.waitOnMain();
-
-            Throwable error = parallelHandler.getErrorFromMain();
-            if (error != null) {
-                if (error instanceof Exception) {
-                    throw Exception.class.cast(error);
-                } else {
-                    throw new Exception(error);
-                }
-            }
+            parallelHandler.await(ParallelHandler.MAIN, ParallelHandler.Stage.RESOURCES, configuration.getStageTimeout());
         }
 
         String name = getName(getPrefix(), context.getArchive());
@@ -364,10 +421,8 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
     protected ProtocolMetaData getProtocolMetaData(Archive<?> archive, final Map<String, String> labels, final int replicas) throws Exception {
         log.info("Creating ProtocolMetaData ...");
 
-        if (!isSPI()) {
-            // resume after Main already pushed k8s/ose config
-            parallelHandler.resumeOnMain();
-        }
+        // k8s/ose config is pushed, RunInPod can move on
+        parallelHandler.complete(getStageOwner(), ParallelHandler.Stage.RESOURCES);
 
         client.delay(labels, replicas, Operator.GREATER_THAN_OR_EQUAL);
 
@@ -476,35 +531,67 @@ public abstract class AbstractCEContainer<T extends Configuration> implements De
 
     protected void cleanup(Archive<?> archive) throws Exception {
         String name = getName(getPrefix(), archive) + "rc";
-        client.cleanReplicationControllers(name);
-        client.cleanPods(DeploymentContext.getDeploymentLabels(archive));
+        Map<String, String> labels = DeploymentContext.getDeploymentLabels(archive);
+        try {
+            client.cleanupAsync(labels, name).get();
+        } finally {
+            proxy.evictPods(labels);
+        }
     }
 
-    protected void cleanupResources(Archive<?> archive) {
+    protected Future<?> cleanupResources(Archive<?> archive) {
         if (!isSPI()) {
-            client.deleteResources(archive.getName());
+            return client.deleteResourcesAsync(archive.getName());
         }
+        return null;
     }
 
-    public void undeploy(Archive<?> archive) throws DeploymentException {
+    public void undeploy(final Archive<?> archive) throws DeploymentException {
         try {
             if (runInPodContainer != null) {
                 runInPodContainer.undeploy();
             }
         } finally {
+            if (teardowns != null) {
+                teardowns.submit(archive.getName(), new Callable<Void>() {
+                    public Void call() throws Exception {
+                        teardown(archive);
+                        return null;
+                    }
+                });
+            } else {
+                teardown(archive);
+            }
+        }
+    }
+
+    private void teardown(Archive<?> archive) throws DeploymentException {
+        try {
             // do we keep test config around for some more?
             if (configuration.performCleanup()) {
+                // resources are deleted while the deployment is cleaned up
+                Future<?> resources = cleanupResources(archive);
                 try {
-                    cleanupResources(archive);
-                } finally {
+                    cleanup(archive);
+                } catch (Exception ignored) {
+                }
+                if (resources != null) {
                     try {
-                        cleanup(archive);
-                    } catch (Exception ignored) {
+                        resources.get();
+                    } catch (ExecutionException e) {
+                        throw new DeploymentException("Cannot delete resources: " + archive.getName(), e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
                     }
                 }
             } else {
                 log.info("Ignore Kubernetes cleanup -- test config is still available.");
             }
+        } finally {
+            Map<String, String> labels = deployedLabels.remove(archive.getName());
+            if (labels != null) {
+                proxy.evictPods(labels);
+            }
             dockerAdapter.reset(archive);
         }
     }
@@ -0,0 +1,66 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff, with jitter.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class Backoff {
+    private static final long MIN_DELAY = 100L;
+    private static final double JITTER = 0.2;
+
+    private final long max;
+    private final Random random = new Random();
+    private long current;
+
+    /**
+     * @param initial first delay, in millis
+     * @param max     max delay (cap), in millis
+     */
+    public Backoff(long initial, long max) {
+        this.max = Math.max(max, MIN_DELAY);
+        this.current = Math.min(Math.max(initial, MIN_DELAY), this.max);
+    }
+
+    /**
+     * Start with a fraction of the check period, and back off up to it.
+     */
+    public static Backoff forPeriod(long checkPeriod) {
+        return new Backoff(checkPeriod / 16, checkPeriod);
+    }
+
+    /**
+     * @return next delay, in millis
+     */
+    public synchronized long next() {
+        long delay = current;
+        current = Math.min(2 * current, max);
+        long jitter = (long) (delay * JITTER * (2 * random.nextDouble() - 1));
+        return Math.min(Math.max(delay + jitter, MIN_DELAY), max);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs many checkers, each with its own backoff, against a common wall-clock deadline.
+ * <p>
+ * Checks block on API calls, so they run on a small pool; the single scheduler thread only times them.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+class CheckerScheduler {
+    private static final int CHECK_THREADS = 8;
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("ce-arq-checker"));
+    private static final ExecutorService checks = Executors.newFixedThreadPool(CHECK_THREADS, new DaemonThreadFactory("ce-arq-check"));
+
+    /**
+     * @return checkers which failed to pass before deadline
+     */
+    static List<Checker> awaitAll(Collection<? extends Checker> checkers, long deadline, long checkPeriod) throws Exception {
+        CountDownLatch latch = new CountDownLatch(checkers.size());
+        List<Task> tasks = new ArrayList<>();
+        for (Checker checker : checkers) {
+            Task task = new Task(checker, Backoff.forPeriod(checkPeriod), deadline, latch);
+            tasks.add(task);
+            checks.execute(task);
+        }
+
+        try {
+            // give the last check some time to finish
+            long timeout = Math.max(deadline - System.currentTimeMillis(), 0) + checkPeriod;
+            latch.await(timeout, TimeUnit.MILLISECONDS);
+        } finally {
+            for (Task task : tasks) {
+                task.cancel();
+            }
+        }
+
+        List<Checker> failed = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.error != null) {
+                if (task.error instanceof Exception) {
+                    throw (Exception) task.error;
+                } else {
+                    throw new Exception(task.error);
+                }
+            }
+            if (task.ready == false) {
+                failed.add(task.checker);
+            }
+        }
+        return failed;
+    }
+
+    private static class Task implements Runnable {
+        private final Checker checker;
+        private final Backoff backoff;
+        private final long deadline;
+        private final CountDownLatch latch;
+
+        private volatile boolean ready;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private volatile ScheduledFuture<?> future;
+
+        private Task(Checker checker, Backoff backoff, long deadline, CountDownLatch latch) {
+            this.checker = checker;
+            this.backoff = backoff;
+            this.deadline = deadline;
+            this.latch = latch;
+        }
+
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+
+            try {
+                if (checker.check()) {
+                    Containers.log.info(String.format("Checker [%s] is ready.", checker));
+                    ready = true;
+                    latch.countDown();
+                    return;
+                }
+            } catch (Throwable t) {
+                error = t;
+                latch.countDown();
+                return;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                latch.countDown();
+            } else {
+                future = scheduler.schedule(new Runnable() {
+                    public void run() {
+                        checks.execute(Task.this);
+                    }
+                }, Math.min(backoff.next(), remaining), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+}
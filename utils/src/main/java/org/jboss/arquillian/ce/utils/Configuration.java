@@ -64,6 +64,7 @@ public abstract class Configuration implements ContainerConfiguration, Configura
     private String registryPort = getSystemPropertyOrEnvVar("kubernetes.registry.port");
     private String registryNamespace = getSystemPropertyOrEnvVar("kubernetes.registry.namespace", "default");
     private String registryServiceName = getSystemPropertyOrEnvVar("kubernetes.registry.service.name", "docker-registry");
+    private boolean registryInsecure = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.registry.insecure", "false"));
 
     private String preStopHookType = getSystemPropertyOrEnvVar("kubernetes.container.pre-stop-hook-type", HookType.HTTP_GET.name());
     private String preStopPath = getSystemPropertyOrEnvVar("kubernetes.container.pre-stop", "/pre-stop/_hook");
@@ -77,6 +78,20 @@ public abstract class Configuration implements ContainerConfiguration, Configura
     private String imageGroup = getSystemPropertyOrEnvVar("docker.test.image", "cetestimage");
     private String imageTag = getSystemPropertyOrEnvVar("docker.test.tag", "latest");
     private String imagePullPolicy = getSystemPropertyOrEnvVar("docker.test.pull.policy", "Always");
+    private boolean layeredBuild = Boolean.parseBoolean(getSystemPropertyOrEnvVar("docker.layered.build"));
+    private boolean imageReuse = Boolean.parseBoolean(getSystemPropertyOrEnvVar("docker.image.reuse"));
+    private int pushConcurrency = Integer.parseInt(getSystemPropertyOrEnvVar("docker.push.concurrency", "2"));
+    private boolean asyncUndeploy = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.async.undeploy"));
+    private int undeployConcurrency = Integer.parseInt(getSystemPropertyOrEnvVar("kubernetes.undeploy.concurrency", "2"));
+    private int projectPoolSize = Integer.parseInt(getSystemPropertyOrEnvVar("kubernetes.project.pool", "0"));
+    private String projectPoolFile = getSystemPropertyOrEnvVar("kubernetes.project.pool.file", System.getProperty("user.home") + "/.ce-arq/projects.properties");
+    private long projectPoolLeaseTimeout = Long.parseLong(getSystemPropertyOrEnvVar("kubernetes.project.pool.lease.timeout", "720"));
+    private String templateCacheDir = getSystemPropertyOrEnvVar("template.cache.dir", System.getProperty("user.home") + "/.ce-arq/templates");
+    private boolean templateProcessLocal = Boolean.parseBoolean(getSystemPropertyOrEnvVar("template.process.local"));
+    private int logBufferLines = Integer.parseInt(getSystemPropertyOrEnvVar("kubernetes.log.buffer.lines", "10000"));
+    private int jolokiaSampleCapacity = Integer.parseInt(getSystemPropertyOrEnvVar("jolokia.sample.capacity", "3600"));
+    private String jolokiaSampleDir = getSystemPropertyOrEnvVar("jolokia.sample.dir");
+    private String imageIndex = getSystemPropertyOrEnvVar("docker.image.index", System.getProperty("user.home") + "/.ce-arq/images.properties");
 
     private String dockerUsername = getSystemPropertyOrEnvVar("docker.username", "");
     private String dockerPassword = getSystemPropertyOrEnvVar("docker.password", "");
@@ -84,6 +99,7 @@ public abstract class Configuration implements ContainerConfiguration, Configura
     private String dockerAddress = getSystemPropertyOrEnvVar("docker.address", "");
 
     private long startupTimeout = Integer.parseInt(getSystemPropertyOrEnvVar("arquillian.startup.timeout", "600")); // 10min ...
+    private long stageTimeout = Integer.parseInt(getSystemPropertyOrEnvVar("arquillian.stage.timeout", "1800")); // 30min, other container's build, push and boot
     private long httpClientTimeout = Integer.parseInt(getSystemPropertyOrEnvVar("arquillian.http.client.timeout", "120")); //default: 2 minutes
 
     private boolean ignoreCleanup = Boolean.parseBoolean(getSystemPropertyOrEnvVar("kubernetes.ignore.cleanup"));
@@ -270,6 +286,14 @@ public abstract class Configuration implements ContainerConfiguration, Configura
         this.registryServiceName = registryServiceName;
     }
 
+    public boolean isRegistryInsecure() {
+        return registryInsecure;
+    }
+
+    public void setRegistryInsecure(boolean registryInsecure) {
+        this.registryInsecure = registryInsecure;
+    }
+
     public HookType getPreStopHookType() {
         return HookType.toHookType(preStopHookType);
     }
@@ -346,6 +370,121 @@ public abstract class Configuration implements ContainerConfiguration, Configura
         this.imagePullPolicy = imagePullPolicy;
     }
 
+    public boolean isLayeredBuild() {
+        return layeredBuild;
+    }
+
+    public void setLayeredBuild(boolean layeredBuild) {
+        this.layeredBuild = layeredBuild;
+    }
+
+    public boolean isImageReuse() {
+        return imageReuse;
+    }
+
+    public void setImageReuse(boolean imageReuse) {
+        this.imageReuse = imageReuse;
+    }
+
+    public int getPushConcurrency() {
+        return pushConcurrency;
+    }
+
+    public void setPushConcurrency(int pushConcurrency) {
+        this.pushConcurrency = pushConcurrency;
+    }
+
+    public boolean isAsyncUndeploy() {
+        return asyncUndeploy;
+    }
+
+    public void setAsyncUndeploy(boolean asyncUndeploy) {
+        this.asyncUndeploy = asyncUndeploy;
+    }
+
+    public int getUndeployConcurrency() {
+        return undeployConcurrency;
+    }
+
+    public void setUndeployConcurrency(int undeployConcurrency) {
+        this.undeployConcurrency = undeployConcurrency;
+    }
+
+    public int getProjectPoolSize() {
+        return projectPoolSize;
+    }
+
+    public void setProjectPoolSize(int projectPoolSize) {
+        this.projectPoolSize = projectPoolSize;
+    }
+
+    public String getProjectPoolFile() {
+        return projectPoolFile;
+    }
+
+    public void setProjectPoolFile(String projectPoolFile) {
+        this.projectPoolFile = projectPoolFile;
+    }
+
+    /**
+     * @return lease timeout in minutes, for leases whose owner cannot be checked
+     */
+    public long getProjectPoolLeaseTimeout() {
+        return projectPoolLeaseTimeout;
+    }
+
+    public void setProjectPoolLeaseTimeout(long projectPoolLeaseTimeout) {
+        this.projectPoolLeaseTimeout = projectPoolLeaseTimeout;
+    }
+
+    public String getTemplateCacheDir() {
+        return templateCacheDir;
+    }
+
+    public void setTemplateCacheDir(String templateCacheDir) {
+        this.templateCacheDir = templateCacheDir;
+    }
+
+    public boolean isTemplateProcessLocal() {
+        return templateProcessLocal;
+    }
+
+    public void setTemplateProcessLocal(boolean templateProcessLocal) {
+        this.templateProcessLocal = templateProcessLocal;
+    }
+
+    public int getLogBufferLines() {
+        return logBufferLines;
+    }
+
+    public void setLogBufferLines(int logBufferLines) {
+        this.logBufferLines = logBufferLines;
+    }
+
+    public int getJolokiaSampleCapacity() {
+        return jolokiaSampleCapacity;
+    }
+
+    public void setJolokiaSampleCapacity(int jolokiaSampleCapacity) {
+        this.jolokiaSampleCapacity = jolokiaSampleCapacity;
+    }
+
+    public String getJolokiaSampleDir() {
+        return jolokiaSampleDir;
+    }
+
+    public void setJolokiaSampleDir(String jolokiaSampleDir) {
+        this.jolokiaSampleDir = jolokiaSampleDir;
+    }
+
+    public String getImageIndex() {
+        return imageIndex;
+    }
+
+    public void setImageIndex(String imageIndex) {
+        this.imageIndex = imageIndex;
+    }
+
     public String getDockerUsername() {
         return dockerUsername;
     }
@@ -386,6 +525,14 @@ public abstract class Configuration implements ContainerConfiguration, Configura
         this.startupTimeout = startupTimeout;
     }
 
+    public long getStageTimeout() {
+        return stageTimeout;
+    }
+
+    public void setStageTimeout(long stageTimeout) {
+        this.stageTimeout = stageTimeout;
+    }
+
     public long getHttpClientTimeout() {
         return httpClientTimeout;
     }
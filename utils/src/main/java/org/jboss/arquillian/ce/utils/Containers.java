@@ -28,13 +28,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.Collection;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class Containers {
-    private static final Logger log = Logger.getLogger(Containers.class.getName());
+    static final Logger log = Logger.getLogger(Containers.class.getName());
 
     private final static String[] CONTAINER_CLASSES = {
         "org.jboss.arquillian.ce.wildfly.WildFlyCEContainer",
@@ -54,22 +56,47 @@ public class Containers {
         return false;
     }
 
+    /**
+     * Check right away, then back off -- up to check period -- until the checker passes or we hit the timeout.
+     *
+     * @param startupTimeout timeout, in seconds
+     * @param checkPeriod    max check period, in millis
+     * @param checker        the checker
+     */
     public static void delay(long startupTimeout, long checkPeriod, Checker checker) throws Exception {
         log.info(String.format("Applying checker [%s], timeout: %ss, check period: %sms", checker, startupTimeout, checkPeriod));
 
-        long timeout = startupTimeout * 1000;
-        while (timeout > 0) {
-            Thread.sleep(checkPeriod);
-
+        final long deadline = System.currentTimeMillis() + startupTimeout * 1000;
+        final Backoff backoff = Backoff.forPeriod(checkPeriod);
+        while (true) {
             if (checker.check()) {
                 log.info(String.format("Checker [%s] is ready.", checker));
-                break;
+                return;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IllegalStateException(String.format("Checker [%s] failed to pass.", checker));
             }
 
-            timeout -= checkPeriod;
+            Thread.sleep(Math.min(backoff.next(), remaining));
         }
-        if (timeout <= 0) {
-            throw new IllegalStateException(String.format("Checker [%s] failed to pass.", checker));
+    }
+
+    /**
+     * Wait on all checkers together, on a shared check pool.
+     *
+     * @param startupTimeout timeout, in seconds
+     * @param checkPeriod    max check period, in millis
+     * @param checkers       the checkers
+     */
+    public static void delayAll(long startupTimeout, long checkPeriod, Collection<? extends Checker> checkers) throws Exception {
+        log.info(String.format("Applying checkers %s, timeout: %ss, check period: %sms", checkers, startupTimeout, checkPeriod));
+
+        final long deadline = System.currentTimeMillis() + startupTimeout * 1000;
+        List<Checker> failed = CheckerScheduler.awaitAll(checkers, deadline, checkPeriod);
+        if (failed.isEmpty() == false) {
+            throw new IllegalStateException(String.format("Checkers %s failed to pass.", failed));
         }
     }
 
@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * One-shot deployment stage -- completes or fails once, and every waiter sees the outcome,
+ * no matter whether it started waiting before or after.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class DeploymentStage {
+    private static final Logger log = Logger.getLogger(DeploymentStage.class.getName());
+
+    private final String name;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile Throwable error;
+
+    DeploymentStage(String name) {
+        this.name = name;
+    }
+
+    synchronized void complete() {
+        if (isDone() == false) {
+            log.info(String.format("Stage %s done.", name));
+            latch.countDown();
+        }
+    }
+
+    synchronized void fail(Throwable error) {
+        if (isDone() == false) {
+            log.warning(String.format("Stage %s failed: %s", name, error));
+            this.error = error;
+            latch.countDown();
+        }
+    }
+
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * Wait for the stage to complete.
+     *
+     * @param timeout timeout in seconds
+     * @throws Exception the stage's failure, if it failed
+     */
+    public void await(long timeout) throws Exception {
+        if (isDone() == false) {
+            log.info(String.format("Waiting for stage %s ...", name));
+            if (latch.await(timeout, TimeUnit.SECONDS) == false) {
+                throw new IllegalStateException(String.format("Stage %s not done in %ss.", name, timeout));
+            }
+        }
+        Throwable t = error;
+        if (t instanceof Exception) {
+            throw (Exception) t;
+        } else if (t != null) {
+            throw new Exception(t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
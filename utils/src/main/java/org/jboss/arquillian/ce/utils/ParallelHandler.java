@@ -23,62 +23,60 @@
 
 package org.jboss.arquillian.ce.utils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Parallel handle.
+ * Deployment stages of the containers taking part in one deployment, e.g. Main and RunInPod.
+ * <p>
+ * Each container progresses through its stages on its own, and only blocks where it explicitly
+ * depends on another container's stage -- e.g. RunInPod's resources on Main's resources.
  *
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class ParallelHandler {
-    private volatile ParallelHandle main = new ParallelHandle();
-    private volatile ParallelHandle spi = new ParallelHandle();
-
-    void initMain() {
-        main.init("Main");
-    }
-
-    void resumeOnMain() {
-        main.doNotify("Main");
-    }
-
-    void errorInMain(Throwable error) {
-        main.doError("Main", error);
-    }
-
-    void waitOnMain() {
-        main.doWait("Main");
-    }
+    public static final String MAIN = "Main";
+    public static final String RUN_IN_POD = "RunInPod";
 
-    Throwable getErrorFromMain() {
-        return main.getError();
+    public enum Stage {
+        IMAGE, // built and pushed
+        RESOURCES, // k8s / OpenShift resources created
+        READY // pods ready
     }
 
-    void clearMain() {
-        main.clear("Main", "Main");
-        spi.clear("RunInPod", "Main");
-    }
-
-    void initSPI() {
-        spi.init("RunInPod");
-    }
+    private volatile Map<String, DeploymentStage> stages = new ConcurrentHashMap<>();
 
-    void resumeOnSPI() {
-        spi.doNotify("RunInPod");
+    /**
+     * Start a new deployment, with all stages pending.
+     */
+    void reset() {
+        stages = new ConcurrentHashMap<>();
     }
 
-    public void errorInSPI(Throwable error) {
-        spi.doError("RunInPod", error);
+    synchronized DeploymentStage stage(String container, Stage stage) {
+        String key = container + "/" + stage;
+        DeploymentStage ds = stages.get(key);
+        if (ds == null) {
+            ds = new DeploymentStage(key);
+            stages.put(key, ds);
+        }
+        return ds;
     }
 
-    void waitOnSPI() {
-        spi.doWait("RunInPod");
+    void complete(String container, Stage stage) {
+        stage(container, stage).complete();
     }
 
-    Throwable getErrorFromSPI() {
-        return spi.getError();
+    /**
+     * Fail all the container's pending stages, so nothing depending on them waits forever.
+     */
+    public void fail(String container, Throwable error) {
+        for (Stage stage : Stage.values()) {
+            stage(container, stage).fail(error);
+        }
     }
 
-    void clearSPI() {
-        spi.clear("RunInPod", "RunInPod");
-        main.clear("Main", "RunInPod");
+    void await(String container, Stage stage, long timeout) throws Exception {
+        stage(container, stage).await(timeout);
     }
 }
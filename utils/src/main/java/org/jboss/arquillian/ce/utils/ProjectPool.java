@@ -0,0 +1,315 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.arquillian.ce.adapter.OpenShiftAdapter;
+
+/**
+ * Pool of pre-created, warm projects, shared by all JVMs (e.g. forked test runs) using the same pool file.
+ * <p>
+ * A project is leased on start, and scrubbed and returned on stop -- instead of being created and deleted.
+ * The file lock serializes forks. Each entry is free, creating or leased; the last two record their owner
+ * (pid@host) and since when, so entries of owners that are gone are reclaimed: scrubbed or re-warmed.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ProjectPool {
+    private static final Logger log = Logger.getLogger(ProjectPool.class.getName());
+
+    private static final String FREE = "free";
+    private static final String CREATING = "creating";
+    private static final String LEASED = "leased";
+
+    private static final ExecutorService warmer = Executors.newCachedThreadPool(new DaemonThreadFactory("ce-arq-project-pool"));
+
+    private final OpenShiftAdapter client;
+    private final Configuration configuration;
+    private final File file;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName(); // pid@host
+
+    public ProjectPool(OpenShiftAdapter client, Configuration configuration) {
+        this.client = client;
+        this.configuration = configuration;
+        this.file = new File(configuration.getProjectPoolFile());
+    }
+
+    /**
+     * Lease a free project, and top up the pool in the background.
+     *
+     * @return the leased project's name
+     */
+    public String lease() throws Exception {
+        String name = null;
+        List<String> created = new ArrayList<>();
+        List<String> reclaimed = new ArrayList<>();
+        synchronized (ProjectPool.class) {
+            try (FileChannel channel = openLock()) {
+                FileLock lock = channel.lock();
+                try {
+                    Properties properties = load();
+                    for (String key : properties.stringPropertyNames()) {
+                        Entry entry = Entry.parse(properties.getProperty(key));
+                        if (entry.isOrphan(TimeUnit.MINUTES.toMillis(configuration.getProjectPoolLeaseTimeout()))) {
+                            log.info(String.format("Reclaiming pooled project %s from %s.", key, entry));
+                            // a leased one needs a scrub, a creating one another warm-up
+                            (LEASED.equals(entry.state) ? reclaimed : created).add(key);
+                            properties.setProperty(key, new Entry(CREATING, owner).toString());
+                        } else if (name == null && FREE.equals(entry.state)) {
+                            name = key;
+                        }
+                    }
+                    if (name == null) {
+                        name = configuration.generateNS();
+                    }
+                    properties.setProperty(name, new Entry(LEASED, owner).toString());
+                    created.addAll(topUp(properties));
+                    store(properties);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+
+        for (String project : created) {
+            prepare(project, false);
+        }
+        for (String project : reclaimed) {
+            prepare(project, true);
+        }
+
+        log.info(String.format("Leased pooled project %s ...", name));
+        client.warmProject(name); // no-op if already warm
+        return name;
+    }
+
+    /**
+     * Scrub the project, and return it to the pool -- or delete it, if it cannot be scrubbed.
+     */
+    public void release(String name) {
+        boolean scrubbed;
+        try {
+            client.scrubProject(name);
+            scrubbed = true;
+        } catch (Exception e) {
+            log.log(Level.WARNING, String.format("Cannot scrub pooled project %s, deleting it: %s", name, e), e);
+            scrubbed = false;
+            try {
+                client.deleteProject(); // the leased project is the configured namespace
+            } catch (Exception ignored) {
+            }
+        }
+        update(name, scrubbed ? FREE : null);
+        log.info(String.format("Returned pooled project %s.", name));
+    }
+
+    /**
+     * Take the project out of the pool, as is.
+     */
+    public void keep(String name) {
+        update(name, null);
+    }
+
+    // warm a new project, or scrub a reclaimed one, in the background; it's free once done
+    private void prepare(final String project, final boolean scrub) {
+        warmer.submit(new Runnable() {
+            public void run() {
+                boolean ready = false;
+                try {
+                    client.warmProject(project);
+                    if (scrub) {
+                        client.scrubProject(project);
+                    }
+                    ready = true;
+                    log.info(String.format("Pooled project %s is warm.", project));
+                } catch (Throwable t) {
+                    log.log(Level.WARNING, String.format("Cannot prepare pooled project %s, dropping it: %s", project, t), t);
+                } finally {
+                    update(project, ready ? FREE : null);
+                }
+            }
+        });
+    }
+
+    private void update(String name, String state) {
+        synchronized (ProjectPool.class) {
+            try (FileChannel channel = openLock()) {
+                FileLock lock = channel.lock();
+                try {
+                    Properties properties = load();
+                    if (state != null) {
+                        properties.setProperty(name, state);
+                    } else {
+                        properties.remove(name);
+                    }
+                    store(properties);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                log.warning(String.format("Cannot update pooled project %s: %s", name, e));
+            }
+        }
+    }
+
+    // projects being created count as available, so concurrent leases don't overshoot
+    private List<String> topUp(Properties properties) {
+        int available = 0;
+        for (String key : properties.stringPropertyNames()) {
+            String state = Entry.parse(properties.getProperty(key)).state;
+            if (FREE.equals(state) || CREATING.equals(state)) {
+                available++;
+            }
+        }
+        List<String> added = new ArrayList<>();
+        for (int i = available; i < configuration.getProjectPoolSize(); i++) {
+            String name = configuration.generateNS();
+            properties.setProperty(name, new Entry(CREATING, owner).toString());
+            added.add(name);
+        }
+        return added;
+    }
+
+    private FileChannel openLock() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && parent.exists() == false && parent.mkdirs() == false) {
+            throw new IOException("Cannot create project pool dir: " + parent);
+        }
+        return new RandomAccessFile(new File(file.getPath() + ".lock"), "rw").getChannel();
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        if (file.exists()) {
+            try (InputStream stream = new FileInputStream(file)) {
+                properties.load(stream);
+            } catch (IOException e) {
+                log.warning(String.format("Cannot read project pool %s: %s", file, e));
+            }
+        }
+        return properties;
+    }
+
+    private void store(Properties properties) throws IOException {
+        try (OutputStream stream = new FileOutputStream(file)) {
+            properties.store(stream, "ce-arq project pool");
+        }
+    }
+
+    /**
+     * A pool entry: state, and for creating / leased ones, owner and timestamp -- "leased:1234@host:1461234567890".
+     */
+    static class Entry {
+        final String state;
+        final String owner;
+        final long timestamp;
+
+        Entry(String state, String owner) {
+            this(state, owner, System.currentTimeMillis());
+        }
+
+        private Entry(String state, String owner, long timestamp) {
+            this.state = state;
+            this.owner = owner;
+            this.timestamp = timestamp;
+        }
+
+        static Entry parse(String value) {
+            int first = value.indexOf(':');
+            int last = value.lastIndexOf(':');
+            if (first < 0) {
+                return new Entry(value, null, 0);
+            }
+            if (last == first) {
+                return new Entry(value.substring(0, first), value.substring(first + 1), 0); // no timestamp
+            }
+            long timestamp;
+            try {
+                timestamp = Long.parseLong(value.substring(last + 1));
+            } catch (NumberFormatException e) {
+                return new Entry(value.substring(0, first), value.substring(first + 1), 0);
+            }
+            return new Entry(value.substring(0, first), value.substring(first + 1, last), timestamp);
+        }
+
+        /**
+         * @param timeout lease timeout in millis, for owners we cannot check
+         */
+        boolean isOrphan(long timeout) {
+            if (FREE.equals(state)) {
+                return false;
+            }
+            if (owner == null) {
+                return true;
+            }
+            Boolean alive = isAlive(owner);
+            if (alive != null) {
+                return alive == false;
+            }
+            return timeout > 0 && System.currentTimeMillis() - timestamp > timeout;
+        }
+
+        /**
+         * @return null if we cannot tell -- other host, or no /proc
+         */
+        static Boolean isAlive(String owner) {
+            int at = owner.indexOf('@');
+            String self = ManagementFactory.getRuntimeMXBean().getName();
+            if (at < 0 || self.endsWith(owner.substring(at)) == false) {
+                return null;
+            }
+            if (self.equals(owner)) {
+                return true;
+            }
+            File proc = new File("/proc/self");
+            if (proc.exists() == false) {
+                return null;
+            }
+            return new File("/proc", owner.substring(0, at)).exists();
+        }
+
+        @Override
+        public String toString() {
+            return (owner != null) ? state + ":" + owner + ":" + timestamp : state;
+        }
+    }
+}
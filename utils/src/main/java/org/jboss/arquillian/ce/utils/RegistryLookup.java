@@ -30,10 +30,19 @@ public interface RegistryLookup {
     class RegistryLookupEntry {
         private String ip;
         private String port;
+        private String scheme;
 
         public RegistryLookupEntry(String ip, String port) {
+            this(ip, port, null);
+        }
+
+        /**
+         * @param scheme the registry API scheme, http or https; null if unknown
+         */
+        public RegistryLookupEntry(String ip, String port, String scheme) {
             this.ip = ip;
             this.port = port;
+            this.scheme = scheme;
         }
 
         public String getIp() {
@@ -43,6 +52,10 @@ public interface RegistryLookup {
         public String getPort() {
             return port;
         }
+
+        public String getScheme() {
+            return scheme;
+        }
     }
 
     RegistryLookupEntry lookup();
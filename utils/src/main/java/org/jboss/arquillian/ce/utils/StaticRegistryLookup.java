@@ -34,6 +34,13 @@ public class StaticRegistryLookup implements RegistryLookup {
     }
 
     public RegistryLookupEntry lookup() {
-        return new RegistryLookupEntry(configuration.getRegistryURL(), configuration.getRegistryPort());
+        String url = configuration.getRegistryURL();
+        // an explicit scheme only tells how to talk to the registry API, it's not part of image names
+        for (String scheme : new String[]{"https", "http"}) {
+            if (url != null && url.startsWith(scheme + "://")) {
+                return new RegistryLookupEntry(url.substring(scheme.length() + 3), configuration.getRegistryPort(), scheme);
+            }
+        }
+        return new RegistryLookupEntry(url, configuration.getRegistryPort());
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background undeploy -- teardowns drain on a bounded pool.
+ * A new deployment waits for its archive's previous teardown before building its image,
+ * and for all pending teardowns before creating any cluster objects.
+ *
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TeardownQueue {
+    private static final Logger log = Logger.getLogger(TeardownQueue.class.getName());
+
+    private final ExecutorService executor;
+    private final Map<String, Future<?>> pending = new ConcurrentHashMap<>();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    public TeardownQueue(int concurrency) {
+        executor = Executors.newFixedThreadPool(Math.max(1, concurrency), new DaemonThreadFactory("ce-arq-teardown"));
+    }
+
+    public void submit(final String name, final Callable<Void> teardown) {
+        log.info(String.format("Queueing teardown of %s ...", name));
+        pending.put(name, executor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                try {
+                    teardown.call();
+                    log.info(String.format("Teardown of %s done.", name));
+                } catch (Throwable t) {
+                    log.log(Level.WARNING, String.format("Teardown of %s failed: %s", name, t), t);
+                    synchronized (errors) {
+                        errors.add(t);
+                    }
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Wait for pending teardown of this name, if any.
+     * Its failure was already reported, and is rethrown on flush.
+     */
+    public void await(String name) throws InterruptedException {
+        Future<?> future = pending.remove(name);
+        if (future != null) {
+            log.info(String.format("Waiting for previous teardown of %s ...", name));
+            get(future);
+        }
+    }
+
+    /**
+     * Wait for all pending teardowns.
+     */
+    public void awaitAll() throws InterruptedException {
+        for (String name : new ArrayList<>(pending.keySet())) {
+            await(name);
+        }
+    }
+
+    /**
+     * Wait for all pending teardowns and stop the queue.
+     *
+     * @throws IllegalStateException if any teardown failed
+     */
+    public void flush() throws InterruptedException {
+        try {
+            awaitAll();
+        } finally {
+            executor.shutdown();
+        }
+        synchronized (errors) {
+            if (errors.isEmpty() == false) {
+                IllegalStateException ise = new IllegalStateException(String.format("%s teardown(s) failed.", errors.size()), errors.get(0));
+                for (int i = 1; i < errors.size(); i++) {
+                    ise.addSuppressed(errors.get(i));
+                }
+                errors.clear();
+                throw ise;
+            }
+        }
+    }
+
+    private static void get(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException ignored) {
+            // teardown errors are recorded by the task itself
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ArchiveDigestTest {
+
+    @Test
+    public void testStableAcrossInstances() throws Exception {
+        String first = ArchiveDigest.digest(war("index", "lib"), "Dockerfile");
+        Thread.sleep(10); // entry timestamps must not matter
+        String second = ArchiveDigest.digest(war("index", "lib"), "Dockerfile");
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(64, first.length());
+    }
+
+    @Test
+    public void testContentAndExtrasMatter() throws Exception {
+        String digest = ArchiveDigest.digest(war("index", "lib"), "Dockerfile");
+        Assert.assertFalse(digest.equals(ArchiveDigest.digest(war("index2", "lib"), "Dockerfile")));
+        Assert.assertFalse(digest.equals(ArchiveDigest.digest(war("index", "lib"), "Dockerfile2")));
+        Assert.assertFalse(digest.equals(ArchiveDigest.digest(war("index", "lib"))));
+    }
+
+    @Test
+    public void testNestedArchiveContent() throws Exception {
+        Assert.assertFalse(ArchiveDigest.digest(war("index", "lib")).equals(ArchiveDigest.digest(war("index", "lib2"))));
+    }
+
+    @Test
+    public void testValueBoundaries() throws Exception {
+        // values are separated, so shifting a character between them changes the digest
+        Assert.assertFalse(ArchiveDigest.digest(war("index", "lib"), "ab", "c").equals(ArchiveDigest.digest(war("index", "lib"), "a", "bc")));
+    }
+
+    @Test
+    public void testAssetsOrderIndependent() throws Exception {
+        Map<String, Asset> first = new HashMap<>();
+        first.put("a", new StringAsset("1"));
+        first.put("b", new StringAsset("2"));
+        Map<String, Asset> second = new HashMap<>();
+        second.put("b", new StringAsset("2"));
+        second.put("a", new StringAsset("1"));
+        Assert.assertEquals(ArchiveDigest.digest(first, "x"), ArchiveDigest.digest(second, "x"));
+
+        second.put("a", new StringAsset("3"));
+        Assert.assertFalse(ArchiveDigest.digest(first, "x").equals(ArchiveDigest.digest(second, "x")));
+    }
+
+    private static WebArchive war(String index, String lib) {
+        JavaArchive jar = ShrinkWrap.create(JavaArchive.class, "lib.jar").addAsResource(new StringAsset(lib), "lib.txt");
+        return ShrinkWrap.create(WebArchive.class, "test.war")
+            .addAsWebResource(new StringAsset(index), "index.html")
+            .addAsLibrary(jar);
+    }
+}
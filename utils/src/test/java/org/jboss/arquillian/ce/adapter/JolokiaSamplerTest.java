@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class JolokiaSamplerTest {
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testSeriesRing() {
+        JolokiaSampler.Series series = new JolokiaSampler.Series(2, 3);
+        Assert.assertEquals(0, series.times().length);
+        for (int i = 1; i <= 5; i++) {
+            series.add(i * 1000L, new double[]{i, -i});
+        }
+        Assert.assertArrayEquals(new long[]{3000, 4000, 5000}, series.times());
+        Assert.assertArrayEquals(new double[]{3, 4, 5}, series.values(0), DELTA);
+        Assert.assertArrayEquals(new double[]{-3, -4, -5}, series.values(1), DELTA);
+        Assert.assertEquals(2, series.values().size());
+    }
+
+    @Test
+    public void testSeriesPartial() {
+        JolokiaSampler.Series series = new JolokiaSampler.Series(1, 4);
+        series.add(1, new double[]{10});
+        series.add(2, new double[]{20});
+        Assert.assertArrayEquals(new long[]{1, 2}, series.times());
+        Assert.assertArrayEquals(new double[]{10, 20}, series.values(0), DELTA);
+    }
+
+    @Test
+    public void testToDouble() {
+        Assert.assertEquals(42.0, JolokiaSampler.toDouble(42L), DELTA);
+        Assert.assertEquals(1.0, JolokiaSampler.toDouble(true), DELTA);
+        Assert.assertTrue(Double.isNaN(JolokiaSampler.toDouble(null))); // failed request
+        Assert.assertTrue(Double.isNaN(JolokiaSampler.toDouble("text")));
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        JolokiaSampler sampler = sampler();
+        try {
+            sampler.add("pod-a", 0, new double[]{100, 1});
+            sampler.add("pod-a", 1000, new double[]{Double.NaN, 2});
+            sampler.add("pod-a", 2000, new double[]{300, 3});
+            sampler.add("pod-b", 0, new double[]{500, 7});
+
+            Assert.assertEquals(new HashSet<>(Arrays.asList("pod-a", "pod-b")), sampler.getPods());
+            Assert.assertArrayEquals(new long[]{0, 1000, 2000}, sampler.getTimes("pod-a"));
+            Assert.assertEquals(500, sampler.getMax("heap"), DELTA);
+            Assert.assertEquals(7, sampler.getMax("threads"), DELTA);
+            // NaN samples are left out of the fit
+            Assert.assertEquals(100, sampler.getSlope("pod-a", "heap"), DELTA);
+            Assert.assertEquals(1, sampler.getSlope("pod-a", "threads"), DELTA);
+            Assert.assertTrue(Double.isNaN(sampler.getSlope("pod-b", "heap")));
+
+            try {
+                sampler.getValues("pod-c", "heap");
+                Assert.fail("No such pod");
+            } catch (IllegalArgumentException expected) {
+            }
+            try {
+                sampler.getValues("pod-a", "gc");
+                Assert.fail("No such metric");
+            } catch (IllegalArgumentException expected) {
+            }
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        JolokiaSampler sampler = sampler();
+        try {
+            sampler.add("pod-a", 5, new double[]{1.5, Double.NaN});
+
+            StringWriter csv = new StringWriter();
+            sampler.writeCsv(csv);
+            Assert.assertEquals("pod,time,heap,threads\npod-a,5,1.5,\n", csv.toString());
+
+            StringWriter json = new StringWriter();
+            sampler.writeJson(json);
+            Assert.assertEquals("{\"pod-a\":{\"time\":[5],\"heap\":[1.5],\"threads\":[null]}}", json.toString());
+        } finally {
+            sampler.close();
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        JolokiaSampler sampler = new JolokiaSampler(null, "prefix", Collections.<String, Object>emptyMap(), 10, null);
+        try {
+            Assert.assertTrue(sampler.getPods().isEmpty());
+            StringWriter json = new StringWriter();
+            sampler.writeJson(json);
+            Assert.assertEquals("{}", json.toString());
+        } finally {
+            sampler.close();
+        }
+    }
+
+    private static JolokiaSampler sampler() {
+        Map<String, Object> input = new LinkedHashMap<>();
+        input.put("heap", "heap request");
+        input.put("threads", "threads request");
+        return new JolokiaSampler(null, "prefix", input, 10, null);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class PodLogCollectorTest {
+
+    @Test
+    public void testBoundedBuffer() throws Exception {
+        TestCollector collector = new TestCollector(-1, 3, false);
+        collector.logs.add("one\ntwo\nthree\nfour\nfive\n");
+        try {
+            collector.start();
+            Assert.assertEquals("five", collector.await("fi.e", 10, TimeUnit.SECONDS));
+            Assert.assertEquals(Arrays.asList("three", "four", "five"), collector.getLines("pod"));
+            Assert.assertEquals(Arrays.asList("four"), collector.grep("^f.u"));
+            Assert.assertEquals(Collections.singleton("pod"), collector.getPods());
+        } finally {
+            collector.close();
+        }
+    }
+
+    @Test
+    public void testAwaitTimeout() throws Exception {
+        TestCollector collector = new TestCollector(-1, 10, false);
+        collector.logs.add("one\n");
+        try {
+            collector.start();
+            collector.await("one", 10, TimeUnit.SECONDS);
+            try {
+                collector.await("two", 100, TimeUnit.MILLISECONDS);
+                Assert.fail("No such line");
+            } catch (IllegalStateException expected) {
+            }
+        } finally {
+            collector.close();
+        }
+    }
+
+    @Test
+    public void testNotResumedWithoutTimestamps() throws Exception {
+        TestCollector collector = new TestCollector(5, 10, false);
+        collector.logs.add("one\n");
+        collector.logs.add("two\n");
+        try {
+            collector.start();
+            collector.await("one", 10, TimeUnit.SECONDS);
+            Thread.sleep(1500);
+            Assert.assertEquals(Arrays.asList("one"), collector.getLines("pod"));
+            Assert.assertEquals(Arrays.asList("tail=5 since=null"), collector.opened);
+        } finally {
+            collector.close();
+        }
+    }
+
+    @Test
+    public void testResumeAfterLastLine() throws Exception {
+        TestCollector collector = new TestCollector(5, 10, true);
+        collector.logs.add("2016-06-01T10:00:00.5Z one\n2016-06-01T10:00:01.1Z two\n2016-06-01T10:00:01.1Z three\n");
+        // resumed at second granularity, so it repeats what was read in that second
+        collector.logs.add("2016-06-01T10:00:01.1Z two\n2016-06-01T10:00:01.1Z three\n2016-06-01T10:00:01.25Z four\n");
+        try {
+            collector.start();
+            collector.await("four", 10, TimeUnit.SECONDS);
+            Assert.assertEquals(Arrays.asList("one", "two", "three", "four"), collector.getLines("pod"));
+            Assert.assertEquals(Arrays.asList("tail=5 since=null", "tail=-1 since=2016-06-01T10:00:01Z"), collector.opened.subList(0, 2));
+        } finally {
+            collector.close();
+        }
+    }
+
+    @Test
+    public void testNotResumedOnceCompleted() throws Exception {
+        TestCollector collector = new TestCollector(-1, 10, true);
+        collector.phase = "Succeeded";
+        collector.logs.add("2016-06-01T10:00:00Z done\n");
+        collector.logs.add("2016-06-01T10:00:01Z more\n");
+        try {
+            collector.start();
+            collector.await("done", 10, TimeUnit.SECONDS);
+            Thread.sleep(1500);
+            Assert.assertEquals(1, collector.opened.size());
+        } finally {
+            collector.close();
+        }
+    }
+
+    @Test
+    public void testPosition() {
+        Assert.assertEquals("2016-06-01T10:00:01.100000000Z", PodLogCollector.Position.normalize("2016-06-01T10:00:01.1Z"));
+        Assert.assertEquals("2016-06-01T10:00:01.000000000Z", PodLogCollector.Position.normalize("2016-06-01T10:00:01Z"));
+        Assert.assertEquals("garbage", PodLogCollector.Position.normalize("garbage"));
+
+        PodLogCollector.Position position = new PodLogCollector.Position();
+        Assert.assertNull(position.sinceTime());
+        Assert.assertTrue(position.read("2016-06-01T10:00:01.1Z"));
+        Assert.assertTrue(position.read("2016-06-01T10:00:01.12Z"));
+        Assert.assertEquals("2016-06-01T10:00:01Z", position.sinceTime());
+
+        position.resume();
+        Assert.assertFalse(position.read("2016-06-01T10:00:01Z"));
+        Assert.assertFalse(position.read("2016-06-01T10:00:01.1Z"));
+        Assert.assertFalse(position.read("2016-06-01T10:00:01.12Z"));
+        Assert.assertTrue(position.read("2016-06-01T10:00:01.12Z")); // a new line, same time
+        Assert.assertTrue(position.read("2016-06-01T10:00:02Z"));
+    }
+
+    private static class TestCollector extends PodLogCollector {
+        private final boolean timestamps;
+        private final List<String> logs = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> opened = Collections.synchronizedList(new ArrayList<String>());
+        private volatile String phase = "Running";
+
+        private TestCollector(int tailLines, int capacity, boolean timestamps) {
+            super(tailLines, capacity);
+            this.timestamps = timestamps;
+        }
+
+        protected Map<String, String> listPods() {
+            Map<String, String> pods = new HashMap<>();
+            pods.put("pod", phase);
+            return pods;
+        }
+
+        protected InputStream openLog(String podName, int tailLines, String sinceTime) throws Exception {
+            opened.add(String.format("tail=%s since=%s", tailLines, sinceTime));
+            if (logs.isEmpty()) {
+                Thread.sleep(10000); // nothing more, "followed"
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            return new ByteArrayInputStream(logs.remove(0).getBytes(StandardCharsets.UTF_8));
+        }
+
+        protected boolean hasTimestamps() {
+            return timestamps;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class PushMetricsTest {
+    @Test
+    public void testLayers() {
+        PushMetrics metrics = new PushMetrics("registry:5000/group/repo:tag");
+        metrics.progress("a", 100L);
+        metrics.progress("a", 50L); // progress is cumulative, never goes back
+        metrics.progress("a", null);
+        metrics.progress("b", 200L);
+        metrics.pushed("a", false);
+        metrics.pushed("b", false);
+        metrics.pushed("c", true);
+        metrics.finish();
+
+        Assert.assertEquals(300, metrics.getBytes());
+        List<PushMetrics.Layer> layers = metrics.getLayers();
+        Assert.assertEquals(3, layers.size());
+        Assert.assertEquals("a", layers.get(0).getId());
+        Assert.assertEquals(100, layers.get(0).getBytes());
+        Assert.assertFalse(layers.get(0).isExisting());
+        Assert.assertTrue(layers.get(2).isExisting());
+        Assert.assertEquals(0, layers.get(2).getBytes());
+    }
+
+    @Test
+    public void testThroughput() throws Exception {
+        PushMetrics metrics = new PushMetrics("image");
+        metrics.progress("a", 1024L * 1024);
+        Thread.sleep(50);
+        metrics.pushed("a", false);
+        metrics.finish();
+
+        long duration = metrics.getDuration();
+        Assert.assertTrue(duration >= 50);
+        Assert.assertEquals(1024.0 * 1024 * 1000 / duration, metrics.getThroughput(), 0.001);
+
+        PushMetrics.Layer layer = metrics.getLayers().get(0);
+        Assert.assertEquals(1024.0 * 1024 * 1000 / layer.getDuration(), layer.getThroughput(), 0.001);
+
+        // durations are fixed once done
+        Thread.sleep(20);
+        Assert.assertEquals(duration, metrics.getDuration());
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TarStreamTest {
+    private static final int BLOCK = 512;
+
+    @Test
+    public void testEntryLayout() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (TarStream tar = new TarStream(baos)) {
+            tar.add("/dir/a.txt", "hello");
+            tar.add("b.bin", new byte[BLOCK]);
+        }
+        byte[] bytes = baos.toByteArray();
+        // header + padded content, header + exact block, two end blocks
+        Assert.assertEquals(6 * BLOCK, bytes.length);
+
+        Assert.assertEquals("dir/a.txt", string(bytes, 0, 100));
+        Assert.assertEquals(5, size(bytes, 0));
+        Assert.assertEquals("hello", new String(bytes, BLOCK, 5, StandardCharsets.UTF_8));
+        Assert.assertTrue(checksumMatches(bytes, 0));
+
+        Assert.assertEquals("b.bin", string(bytes, 2 * BLOCK, 100));
+        Assert.assertEquals(BLOCK, size(bytes, 2 * BLOCK));
+        Assert.assertTrue(checksumMatches(bytes, 2 * BLOCK));
+
+        Assert.assertArrayEquals(new byte[2 * BLOCK], Arrays.copyOfRange(bytes, 4 * BLOCK, 6 * BLOCK));
+    }
+
+    @Test
+    public void testLongPathSplit() throws Exception {
+        String dir = repeat('d', 120);
+        String name = repeat('n', 90);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (TarStream tar = new TarStream(baos)) {
+            tar.add(dir + "/" + name, "x");
+        }
+        byte[] bytes = baos.toByteArray();
+        Assert.assertEquals(name, string(bytes, 0, 100));
+        Assert.assertEquals(dir, string(bytes, 345, 155));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPathTooLong() throws Exception {
+        try (TarStream tar = new TarStream(new ByteArrayOutputStream())) {
+            tar.add(repeat('x', 101), "x");
+        }
+    }
+
+    @Test
+    public void testSizeMismatch() throws Exception {
+        try (TarStream tar = new TarStream(new ByteArrayOutputStream())) {
+            tar.add("short", 10, new ByteArrayInputStream(new byte[5]));
+            Assert.fail("Expected size mismatch");
+        } catch (IllegalStateException expected) {
+        }
+        try (TarStream tar = new TarStream(new ByteArrayOutputStream())) {
+            tar.add("long", 5, new ByteArrayInputStream(new byte[10]));
+            Assert.fail("Expected size mismatch");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testArchiveEntry() throws Exception {
+        WebArchive war = ShrinkWrap.create(WebArchive.class, "test.war").addAsWebResource(new StringAsset("<html/>"), "index.html");
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (TarStream tar = new TarStream(baos)) {
+            tar.add("deployments/test.war", war);
+        }
+        byte[] bytes = baos.toByteArray();
+        Assert.assertEquals("deployments/test.war", string(bytes, 0, 100));
+        int size = (int) size(bytes, 0);
+        Assert.assertEquals(0, bytes.length % BLOCK);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes, BLOCK, size))) {
+            ZipEntry entry;
+            boolean found = false;
+            while ((entry = zip.getNextEntry()) != null) {
+                found |= "index.html".equals(entry.getName());
+            }
+            Assert.assertTrue(found);
+        }
+    }
+
+    @Test
+    public void testEntryAfterArchive() throws Exception {
+        WebArchive war = ShrinkWrap.create(WebArchive.class, "test.war").addAsWebResource(new StringAsset("<html/>"), "index.html");
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (TarStream tar = new TarStream(baos)) {
+            tar.add("deployments/test.war", war);
+            tar.add("Dockerfile", "FROM scratch");
+        }
+        byte[] bytes = baos.toByteArray();
+        long size = size(bytes, 0);
+        int next = (int) (BLOCK + (size + BLOCK - 1) / BLOCK * BLOCK);
+        Assert.assertEquals("Dockerfile", string(bytes, next, 100));
+        Assert.assertTrue(checksumMatches(bytes, next));
+        Assert.assertEquals(next + 4 * BLOCK, bytes.length);
+    }
+
+    private static String string(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long size(byte[] bytes, int header) {
+        return Long.parseLong(string(bytes, header + 124, 12), 8);
+    }
+
+    private static boolean checksumMatches(byte[] bytes, int header) throws IOException {
+        long expected = Long.parseLong(string(bytes, header + 148, 7), 8);
+        long sum = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            sum += (i >= 148 && i < 156) ? ' ' : (bytes[header + i] & 0xff);
+        }
+        return expected == sum;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.adapter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class TemplateCacheTest {
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private HttpServer server;
+    private File dir;
+    private volatile int status;
+    private volatile String body;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("template-cache").toFile();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String etag = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (status == 200 && "\"v1\"".equals(etag)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                    exchange.sendResponseHeaders(status, bytes.length);
+                    try (OutputStream stream = exchange.getResponseBody()) {
+                        stream.write(bytes);
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        dir.delete();
+    }
+
+    @Test
+    public void testFetchAndStore() throws Exception {
+        status = 200;
+        body = "fresh";
+        String url = url();
+        Assert.assertEquals("fresh", get(url));
+        Assert.assertTrue(new File(dir, TemplateCache.key(url) + ".template").exists());
+
+        // the same JVM doesn't go back to the server
+        body = "changed";
+        Assert.assertEquals("fresh", get(url));
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        status = 200;
+        body = "fresh";
+        String url = url();
+        cache(url, "cached");
+        Assert.assertEquals("cached", get(url));
+    }
+
+    @Test
+    public void testServerErrorUsesCachedCopy() throws Exception {
+        status = 500;
+        body = "oops";
+        String url = url();
+        cache(url, "cached");
+        Assert.assertEquals("cached", get(url));
+    }
+
+    @Test
+    public void testNotFoundUsesCachedCopy() throws Exception {
+        status = 404;
+        body = "gone";
+        String url = url();
+        cache(url, "cached");
+        Assert.assertEquals("cached", get(url));
+    }
+
+    @Test(expected = IOException.class)
+    public void testServerErrorWithoutCachedCopy() throws Exception {
+        status = 500;
+        body = "oops";
+        get(url());
+    }
+
+    @Test
+    public void testUnreachableUsesCachedCopy() throws Exception {
+        String url = url();
+        cache(url, "cached");
+        server.stop(0);
+        Assert.assertEquals("cached", get(url));
+    }
+
+    // unique per test, as the in-memory cache is shared by the JVM
+    private String url() {
+        return String.format("http://127.0.0.1:%s/template-%s.json", server.getAddress().getPort(), counter.incrementAndGet());
+    }
+
+    private String get(String url) throws IOException {
+        return new String(new TemplateCache(dir).get(url), StandardCharsets.UTF_8);
+    }
+
+    private void cache(String url, String content) throws IOException {
+        String key = TemplateCache.key(url);
+        try (OutputStream stream = new FileOutputStream(new File(dir, key + ".template"))) {
+            stream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        Properties properties = new Properties();
+        properties.setProperty("url", url);
+        properties.setProperty("etag", "\"v1\"");
+        try (OutputStream stream = new FileOutputStream(new File(dir, key + ".properties"))) {
+            properties.store(stream, null);
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.portfwd;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class PortForwardTunnelTest {
+    private static final int OP_BINARY = 0x2;
+    private static final int OP_PING = 0x9;
+    private static final int OP_PONG = 0xA;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFrameRoundTrip() throws Exception {
+        byte[] mask = {1, 2, 3, 4};
+        for (int length : new int[]{0, 1, 125, 126, 127, 65535, 65536, 70000}) {
+            byte[] payload = payload(length);
+            for (byte[] m : new byte[][]{null, mask}) {
+                byte[] frame = PortForwardTunnel.Frame.encode(OP_BINARY, payload, m);
+                PortForwardTunnel.Frame decoded = PortForwardTunnel.Frame.read(new ByteArrayInputStream(frame));
+                Assert.assertTrue(decoded.fin);
+                Assert.assertEquals(OP_BINARY, decoded.opcode);
+                Assert.assertArrayEquals("length " + length, payload, decoded.payload);
+            }
+        }
+    }
+
+    @Test
+    public void testFrameHeader() throws Exception {
+        byte[] small = PortForwardTunnel.Frame.encode(OP_BINARY, payload(125), null);
+        Assert.assertEquals(0x82, small[0] & 0xFF);
+        Assert.assertEquals(125, small[1]);
+        Assert.assertEquals(2 + 125, small.length);
+
+        byte[] medium = PortForwardTunnel.Frame.encode(OP_BINARY, payload(300), null);
+        Assert.assertEquals(126, medium[1]);
+        Assert.assertEquals(300, ((medium[2] & 0xFF) << 8) | (medium[3] & 0xFF));
+        Assert.assertEquals(4 + 300, medium.length);
+
+        byte[] large = PortForwardTunnel.Frame.encode(OP_BINARY, payload(65536), null);
+        Assert.assertEquals(127, large[1]);
+        Assert.assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 1, 0, 0}, Arrays.copyOfRange(large, 2, 10));
+        Assert.assertEquals(10 + 65536, large.length);
+    }
+
+    @Test
+    public void testFrameMasking() throws Exception {
+        byte[] mask = {(byte) 0xA1, (byte) 0xB2, (byte) 0xC3, (byte) 0xD4};
+        byte[] payload = payload(10);
+        byte[] frame = PortForwardTunnel.Frame.encode(OP_BINARY, payload, mask);
+        Assert.assertEquals(0x80 | 10, frame[1] & 0xFF);
+        Assert.assertArrayEquals(mask, Arrays.copyOfRange(frame, 2, 6));
+        for (int i = 0; i < payload.length; i++) {
+            Assert.assertEquals((byte) (payload[i] ^ mask[i % 4]), frame[6 + i]);
+        }
+    }
+
+    @Test
+    public void testFrameEndOfStream() throws Exception {
+        Assert.assertNull(PortForwardTunnel.Frame.read(new ByteArrayInputStream(new byte[0])));
+
+        byte[] frame = PortForwardTunnel.Frame.encode(OP_BINARY, payload(200), null);
+        try {
+            PortForwardTunnel.Frame.read(new ByteArrayInputStream(Arrays.copyOf(frame, 100)));
+            Assert.fail("Truncated frame should fail");
+        } catch (EOFException expected) {
+        }
+    }
+
+    @Test
+    public void testDemultiplexing() throws Exception {
+        Socket[] server = pair();
+        Socket[] first = pair();
+        Socket[] second = pair();
+        PortForward.Metrics metrics = new PortForward.Metrics();
+        PortForwardTunnel tunnel = new PortForwardTunnel("test", server[0], server[0].getInputStream(), server[0].getOutputStream(), new int[]{8080, 9990}, metrics, executor, false);
+        try {
+            tunnel.start();
+            Assert.assertTrue(tunnel.attach(0, first[0]));
+            Assert.assertTrue(tunnel.attach(1, second[0]));
+            Assert.assertFalse(tunnel.attach(1, second[0]));
+
+            OutputStream pod = server[1].getOutputStream();
+            // the first message on every channel is the port
+            write(pod, 0, 0x90, 0x1F);
+            write(pod, 1, 0x90, 0x1F);
+            write(pod, 2, 0x06, 0x27, 'x', 'y');
+            write(pod, 3, 0x06, 0x27);
+            write(pod, 1, 'o', 'o', 'p', 's');
+            write(pod, 0, 'a', 'b', 'c');
+            write(pod, 2, 'z');
+
+            Assert.assertArrayEquals("abc".getBytes("UTF-8"), read(first[1].getInputStream(), 3));
+            Assert.assertArrayEquals("xyz".getBytes("UTF-8"), read(second[1].getInputStream(), 3));
+            // counted once written locally, which may trail our reads
+            long deadline = System.currentTimeMillis() + 5000;
+            while (metrics.getBytesReceived() < 6 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(6, metrics.getBytesReceived());
+
+            // local writes go out as masked frames on the stream's data channel
+            second[1].getOutputStream().write("hello".getBytes("UTF-8"));
+            second[1].getOutputStream().flush();
+            PortForwardTunnel.Frame frame = PortForwardTunnel.Frame.read(server[1].getInputStream());
+            Assert.assertEquals(OP_BINARY, frame.opcode);
+            Assert.assertArrayEquals(new byte[]{2, 'h', 'e', 'l', 'l', 'o'}, frame.payload);
+        } finally {
+            tunnel.close();
+            close(server, first, second);
+        }
+    }
+
+    @Test
+    public void testPingAndFragments() throws Exception {
+        Socket[] server = pair();
+        Socket[] local = pair();
+        PortForwardTunnel tunnel = new PortForwardTunnel("test", server[0], server[0].getInputStream(), server[0].getOutputStream(), new int[]{8080}, new PortForward.Metrics(), executor, false);
+        try {
+            tunnel.start();
+            tunnel.attach(0, local[0]);
+
+            OutputStream pod = server[1].getOutputStream();
+            pod.write(PortForwardTunnel.Frame.encode(OP_PING, new byte[]{7}, null));
+            PortForwardTunnel.Frame pong = PortForwardTunnel.Frame.read(server[1].getInputStream());
+            Assert.assertEquals(OP_PONG, pong.opcode);
+            Assert.assertArrayEquals(new byte[]{7}, pong.payload);
+
+            write(pod, 0, 0x90, 0x1F);
+            // a message split in a non-final frame and a continuation
+            byte[] start = PortForwardTunnel.Frame.encode(OP_BINARY, new byte[]{0, 'a'}, null);
+            start[0] &= 0x7F;
+            pod.write(start);
+            pod.write(PortForwardTunnel.Frame.encode(0x0, new byte[]{'b'}, null));
+            pod.flush();
+            Assert.assertArrayEquals("ab".getBytes("UTF-8"), read(local[1].getInputStream(), 2));
+        } finally {
+            tunnel.close();
+            close(server, local);
+        }
+    }
+
+    @Test
+    public void testCloseEndsStreams() throws Exception {
+        Socket[] server = pair();
+        Socket[] local = pair();
+        PortForwardTunnel tunnel = new PortForwardTunnel("test", server[0], server[0].getInputStream(), server[0].getOutputStream(), new int[]{8080}, new PortForward.Metrics(), executor, false);
+        try {
+            tunnel.start();
+            tunnel.attach(0, local[0]);
+            server[1].close();
+            Assert.assertEquals(-1, local[1].getInputStream().read());
+            Assert.assertTrue(tunnel.isClosed());
+        } finally {
+            tunnel.close();
+            close(server, local);
+        }
+    }
+
+    @Test
+    public void testSlowStreamDoesNotBlockTunnel() throws Exception {
+        Socket[] server = pair();
+        Socket[] local = pair();
+        PortForwardTunnel tunnel = new PortForwardTunnel("test", server[0], server[0].getInputStream(), server[0].getOutputStream(), new int[]{8080, 9990}, new PortForward.Metrics(), executor, false);
+        try {
+            tunnel.start();
+            Assert.assertTrue(tunnel.attach(1, local[0]));
+
+            OutputStream pod = server[1].getOutputStream();
+            write(pod, 0, 0x90, 0x1F);
+            write(pod, 2, 0x06, 0x27);
+            // nobody reads port 8080's stream, more than its queue holds
+            for (int i = 0; i < 100; i++) {
+                write(pod, 0, 'x');
+            }
+            write(pod, 2, 'o', 'k');
+
+            Assert.assertArrayEquals("ok".getBytes("UTF-8"), read(local[1].getInputStream(), 2));
+            Assert.assertFalse(tunnel.isClosed());
+            // the overflowed stream is closed
+            Assert.assertFalse(tunnel.attach(0, local[0]));
+        } finally {
+            tunnel.close();
+            close(server, local);
+        }
+    }
+
+    private static byte[] payload(int length) {
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) i;
+        }
+        return payload;
+    }
+
+    private static void write(OutputStream out, int... bytes) throws IOException {
+        byte[] payload = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            payload[i] = (byte) bytes[i];
+        }
+        out.write(PortForwardTunnel.Frame.encode(OP_BINARY, payload, null));
+        out.flush();
+    }
+
+    private static byte[] read(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+        return bytes;
+    }
+
+    private static Socket[] pair() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+            Socket accepted = server.accept();
+            accepted.setSoTimeout(10000);
+            client.setSoTimeout(10000);
+            return new Socket[]{accepted, client};
+        }
+    }
+
+    private static void close(Socket[]... pairs) {
+        for (Socket[] pair : pairs) {
+            for (Socket socket : pair) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
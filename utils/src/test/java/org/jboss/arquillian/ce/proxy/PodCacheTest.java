@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.proxy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import okhttp3.OkHttpClient;
+import org.jboss.arquillian.ce.utils.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class PodCacheTest {
+    private static final Map<String, String> LABELS = Collections.singletonMap("app", "test");
+
+    @Test
+    public void testReadyPodsResubscribe() throws Exception {
+        TestProxy proxy = new TestProxy("a:ready", "b");
+        Assert.assertEquals("a", proxy.findPod(LABELS, 0));
+        Assert.assertEquals(Collections.singleton("a"), proxy.getReadyPods(LABELS));
+        Assert.assertEquals(1, proxy.watches.get());
+
+        proxy.pods = Arrays.asList("a:ready", "b:ready");
+        proxy.watcher.closed(null); // dropped watch
+        Assert.assertEquals(2, proxy.getReadyPods(LABELS).size());
+        Assert.assertEquals(2, proxy.watches.get());
+    }
+
+    @Test
+    public void testEvictReleasesWaiter() throws Exception {
+        final TestProxy proxy = new TestProxy("a");
+        final PodCache<String> cache = new PodCache<>(proxy, LABELS);
+        Assert.assertTrue(cache.start());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> result = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return cache.await(new ReadyPodsCondition() {
+                        public boolean check(Set<String> pods) {
+                            return pods.isEmpty() == false;
+                        }
+                    }, 60 * 1000L);
+                }
+            });
+            Thread.sleep(100);
+            cache.close();
+            Assert.assertFalse(result.get(5, TimeUnit.SECONDS));
+            Assert.assertTrue(cache.isClosed());
+            // closed cache doesn't re-subscribe
+            Assert.assertTrue(cache.getReadyPods().isEmpty());
+            Assert.assertEquals(1, proxy.watches.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEvictAndRecreate() throws Exception {
+        TestProxy proxy = new TestProxy("a:ready");
+        proxy.findPod(LABELS, 0);
+        Assert.assertEquals(1, proxy.getReadyPods(LABELS).size());
+        proxy.evictPods(LABELS);
+        Assert.assertEquals(1, proxy.closes.get());
+
+        proxy.findPod(LABELS, 0);
+        Assert.assertEquals(2, proxy.watches.get());
+
+        proxy.close();
+        Assert.assertEquals(2, proxy.closes.get());
+    }
+
+    @Test
+    public void testAdHocSelectors() throws Exception {
+        TestProxy proxy = new TestProxy("a:ready");
+        Assert.assertEquals(1, proxy.getReadyPods(LABELS).size());
+        Assert.assertEquals(0, proxy.watches.get());
+
+        proxy.awaitReadyPods(LABELS, new ReadyPodsCondition() {
+            public boolean check(Set<String> pods) {
+                return pods.size() == 1;
+            }
+        });
+        Assert.assertEquals(1, proxy.watches.get());
+        Assert.assertEquals(1, proxy.closes.get());
+    }
+
+    private static class TestProxy extends AbstractProxy<String> {
+        private final AtomicInteger watches = new AtomicInteger();
+        private final AtomicInteger closes = new AtomicInteger();
+        private volatile List<String> pods;
+        private volatile PodWatcher<String> watcher;
+
+        private TestProxy(String... pods) {
+            super(new Configuration() {
+            });
+            this.pods = Arrays.asList(pods);
+        }
+
+        @Override
+        protected Closeable watchPods(Map<String, String> labels, PodWatcher<String> watcher) {
+            watches.incrementAndGet();
+            this.watcher = watcher;
+            watcher.resync(new ArrayList<>(pods));
+            return new Closeable() {
+                public void close() throws IOException {
+                    closes.incrementAndGet();
+                }
+            };
+        }
+
+        protected List<String> getPods(Map<String, String> labels) {
+            return pods;
+        }
+
+        protected String getName(String pod) {
+            return pod.split(":")[0];
+        }
+
+        protected boolean isReady(String pod) {
+            return pod.endsWith(":ready");
+        }
+
+        protected OkHttpClient getHttpClient() {
+            throw new UnsupportedOperationException();
+        }
+
+        public SSLContext getSSLContext() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.resources;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class OpenShiftResourceFactoryTest {
+
+    @Test
+    public void testKind() {
+        Assert.assertEquals("Secret", OpenShiftResourceFactory.kind(bytes("{\"kind\": \"Secret\", \"apiVersion\": \"v1\"}")));
+        Assert.assertEquals("Service", OpenShiftResourceFactory.kind(bytes("apiVersion: v1\nkind: Service\nmetadata:\n  name: x\n")));
+        Assert.assertNull(OpenShiftResourceFactory.kind(bytes("{\"apiVersion\": \"v1\"}")));
+    }
+
+    @Test
+    public void testRank() {
+        int referenced = rank("{\"kind\": \"Secret\"}");
+        Assert.assertEquals(referenced, rank("{\"kind\": \"Role\"}"));
+        Assert.assertEquals(referenced, rank("kind: ClusterRole\n"));
+        Assert.assertTrue(rank("{\"kind\": \"RoleBinding\"}") > referenced);
+        Assert.assertTrue(rank("{\"kind\": \"Service\"}") > rank("{\"kind\": \"RoleBinding\"}"));
+        Assert.assertTrue(rank("{\"kind\": \"DeploymentConfig\"}") > rank("{\"kind\": \"Service\"}"));
+    }
+
+    @Test
+    public void testListRank() {
+        // a List goes with its earliest item
+        Assert.assertEquals(rank("{\"kind\": \"DeploymentConfig\"}"), rank("{\"kind\": \"List\", \"items\": [{\"kind\": \"DeploymentConfig\"}, {\"kind\": \"Pod\"}]}"));
+        Assert.assertEquals(rank("{\"kind\": \"Service\"}"), rank("{\"kind\": \"List\", \"items\": [{\"kind\": \"DeploymentConfig\"}, {\"kind\": \"Service\"}]}"));
+        Assert.assertEquals(rank("{\"kind\": \"Secret\"}"), rank("{\"kind\": \"List\", \"objects\": [{\"kind\": \"DeploymentConfig\"}, {\"kind\": \"ServiceAccount\"}]}"));
+        // unreadable items, created first
+        Assert.assertEquals(rank("{\"kind\": \"Secret\"}"), rank("kind: List\nitems:\n- kind: DeploymentConfig\n"));
+    }
+
+    private static int rank(String content) {
+        return OpenShiftResourceFactory.rank(bytes(content));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
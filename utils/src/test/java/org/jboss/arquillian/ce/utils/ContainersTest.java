@@ -0,0 +1,88 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ContainersTest {
+
+    @Test
+    public void testDelayChecksRightAway() throws Exception {
+        CountingChecker checker = new CountingChecker(1);
+        long start = System.currentTimeMillis();
+        Containers.delay(10, 4000L, checker);
+        Assert.assertEquals(1, checker.checks.get());
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testDelayAll() throws Exception {
+        CountingChecker first = new CountingChecker(1);
+        CountingChecker second = new CountingChecker(4);
+        Containers.delayAll(10, 200L, Arrays.asList(first, second));
+        Assert.assertEquals(1, first.checks.get());
+        Assert.assertEquals(4, second.checks.get());
+    }
+
+    @Test
+    public void testDelayAllTimeout() throws Exception {
+        CountingChecker passing = new CountingChecker(1);
+        CountingChecker failing = new CountingChecker(Integer.MAX_VALUE);
+        long start = System.currentTimeMillis();
+        try {
+            Containers.delayAll(1, 200L, Arrays.asList(passing, failing));
+            Assert.fail("Expected timeout");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("failing"));
+            Assert.assertFalse(e.getMessage(), e.getMessage().contains("passing"));
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        Assert.assertTrue(String.valueOf(elapsed), elapsed >= 900 && elapsed < 5000);
+    }
+
+    private static class CountingChecker implements Checker {
+        private final AtomicInteger checks = new AtomicInteger();
+        private final int passAt;
+
+        private CountingChecker(int passAt) {
+            this.passAt = passAt;
+        }
+
+        public boolean check() {
+            return checks.incrementAndGet() >= passAt;
+        }
+
+        @Override
+        public String toString() {
+            return passAt == 1 ? "passing" : passAt == Integer.MAX_VALUE ? "failing" : "counting";
+        }
+    }
+}
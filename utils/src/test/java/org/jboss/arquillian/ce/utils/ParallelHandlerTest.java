@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ParallelHandlerTest {
+
+    @Test
+    public void testCompletedBeforeAwait() throws Exception {
+        ParallelHandler handler = new ParallelHandler();
+        handler.complete(ParallelHandler.MAIN, ParallelHandler.Stage.RESOURCES);
+        handler.await(ParallelHandler.MAIN, ParallelHandler.Stage.RESOURCES, 1);
+    }
+
+    @Test
+    public void testCompletedWhileWaiting() throws Exception {
+        final ParallelHandler handler = new ParallelHandler();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> done = executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    handler.await(ParallelHandler.MAIN, ParallelHandler.Stage.RESOURCES, 10);
+                    return null;
+                }
+            });
+            Thread.sleep(100);
+            Assert.assertFalse(done.isDone());
+            handler.complete(ParallelHandler.MAIN, ParallelHandler.Stage.RESOURCES);
+            done.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailurePropagates() throws Exception {
+        ParallelHandler handler = new ParallelHandler();
+        IllegalArgumentException error = new IllegalArgumentException("boom");
+        handler.fail(ParallelHandler.RUN_IN_POD, error);
+        for (ParallelHandler.Stage stage : ParallelHandler.Stage.values()) {
+            try {
+                handler.await(ParallelHandler.RUN_IN_POD, stage, 1);
+                Assert.fail("Expected failure of " + stage);
+            } catch (IllegalArgumentException e) {
+                Assert.assertSame(error, e);
+            }
+        }
+        // a completed stage stays completed
+        handler.complete(ParallelHandler.MAIN, ParallelHandler.Stage.IMAGE);
+        handler.fail(ParallelHandler.MAIN, error);
+        handler.await(ParallelHandler.MAIN, ParallelHandler.Stage.IMAGE, 1);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ParallelHandler handler = new ParallelHandler();
+        long start = System.currentTimeMillis();
+        try {
+            handler.await(ParallelHandler.MAIN, ParallelHandler.Stage.READY, 1);
+            Assert.fail("Expected timeout");
+        } catch (IllegalStateException expected) {
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start >= 900);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        ParallelHandler handler = new ParallelHandler();
+        handler.fail(ParallelHandler.MAIN, new IllegalStateException("previous deployment"));
+        handler.reset();
+        handler.complete(ParallelHandler.MAIN, ParallelHandler.Stage.RESOURCES);
+        handler.await(ParallelHandler.MAIN, ParallelHandler.Stage.RESOURCES, 1);
+    }
+}
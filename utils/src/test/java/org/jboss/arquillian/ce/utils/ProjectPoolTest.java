@@ -0,0 +1,71 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2016 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.jboss.arquillian.ce.utils;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
+ */
+public class ProjectPoolTest {
+    private static final long HOUR = 3600 * 1000L;
+
+    @Test
+    public void testEntryFormat() {
+        ProjectPool.Entry entry = ProjectPool.Entry.parse("leased:1234@host:1461234567890");
+        Assert.assertEquals("leased", entry.state);
+        Assert.assertEquals("1234@host", entry.owner);
+        Assert.assertEquals(1461234567890L, entry.timestamp);
+        Assert.assertEquals("leased:1234@host:1461234567890", entry.toString());
+
+        Assert.assertEquals("free", ProjectPool.Entry.parse("free").toString());
+        Assert.assertNull(ProjectPool.Entry.parse("free").owner);
+
+        ProjectPool.Entry old = ProjectPool.Entry.parse("leased:1234@host");
+        Assert.assertEquals("1234@host", old.owner);
+        Assert.assertEquals(0, old.timestamp);
+    }
+
+    @Test
+    public void testOrphan() {
+        String self = ManagementFactory.getRuntimeMXBean().getName();
+        String host = self.substring(self.indexOf('@'));
+
+        Assert.assertFalse(ProjectPool.Entry.parse("free").isOrphan(HOUR));
+        Assert.assertFalse(new ProjectPool.Entry("leased", self).isOrphan(HOUR));
+        Assert.assertFalse(new ProjectPool.Entry("creating", self).isOrphan(HOUR));
+
+        // another host: only by age
+        Assert.assertFalse(new ProjectPool.Entry("leased", "1@elsewhere.invalid").isOrphan(HOUR));
+        Assert.assertTrue(ProjectPool.Entry.parse("leased:1@elsewhere.invalid:" + (System.currentTimeMillis() - 2 * HOUR)).isOrphan(HOUR));
+        Assert.assertFalse(ProjectPool.Entry.parse("leased:1@elsewhere.invalid:" + (System.currentTimeMillis() - 2 * HOUR)).isOrphan(0));
+
+        if (ProjectPool.Entry.isAlive("999999999" + host) != null) {
+            Assert.assertTrue(new ProjectPool.Entry("leased", "999999999" + host).isOrphan(HOUR));
+        }
+    }
+}